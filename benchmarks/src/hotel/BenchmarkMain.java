@@ -0,0 +1,24 @@
+package hotel;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of benchmarks.jar: runs JMH with the GC profiler enabled so
+ * every result also reports allocation rate ({@code gc.alloc.rate.norm} is
+ * bytes allocated per operation). All JMH command-line options still apply.
+ */
+public class BenchmarkMain {
+    
+    public static void main(String[] args) throws Exception {
+        String[] withGc;
+        if (Arrays.asList(args).contains("-prof")) {
+            withGc = args;
+        } else {
+            withGc = new String[args.length + 2];
+            withGc[0] = "-prof";
+            withGc[1] = "gc";
+            System.arraycopy(args, 0, withGc, 2, args.length);
+        }
+        org.openjdk.jmh.Main.main(withGc);
+    }
+}
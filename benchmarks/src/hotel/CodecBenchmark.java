@@ -0,0 +1,180 @@
+package hotel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save and load of the binary snapshot format against the original Java
+ * serialization, on a synthetic history with one guest per two
+ * reservations. The binary load only decodes active reservations; closed
+ * ones stay in the mapped history, and {@link #historyLookup} measures
+ * decoding one of them on demand. Override the size with
+ * {@code -p reservations=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+    
+    @Param({"100000"})
+    public int reservations;
+    
+    private HotelCodec.Snapshot snapshot;
+    private SnapshotHistory.Resolver resolver;
+    private File binaryFile;
+    private File serialFile;
+    private SnapshotHistory history;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        snapshot = generate(reservations);
+        resolver = resolver(snapshot);
+        binaryFile = File.createTempFile("hotel-bench", ".dat");
+        serialFile = File.createTempFile("hotel-bench", ".ser");
+        HotelCodec.write(snapshot, binaryFile);
+        writeSerialized(snapshot, serialFile);
+        history = HotelCodec.read(binaryFile, resolver).history;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        binaryFile.delete();
+        serialFile.delete();
+    }
+    
+    @Benchmark
+    public void binaryWrite() throws IOException {
+        HotelCodec.write(snapshot, binaryFile);
+    }
+    
+    @Benchmark
+    public HotelCodec.Snapshot binaryRead() throws IOException {
+        return HotelCodec.read(binaryFile, resolver);
+    }
+    
+    @Benchmark
+    public void serializedWrite() throws IOException {
+        writeSerialized(snapshot, serialFile);
+    }
+    
+    @Benchmark
+    public HotelCodec.Snapshot serializedRead() throws IOException {
+        return HotelCodec.readLegacy(serialFile);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Reservation historyLookup() {
+        int i = ThreadLocalRandom.current().nextInt(history.reservationCount());
+        return history.findReservation(history.reservationNumberAt(i));
+    }
+    
+    /**
+     * Builds a synthetic history with one guest per two reservations. Only
+     * confirmed and checked-in reservations, and their guests, are live.
+     */
+    static HotelCodec.Snapshot generate(int reservationCount) {
+        List<Room> rooms = new ArrayList<>();
+        Room.RoomType[] types = Room.RoomType.values();
+        for (int i = 0; i < 500; i++) {
+            rooms.add(new Room(1000 + i, types[i % types.length], i % 3 != 0, true));
+        }
+        
+        List<Guest> guests = new ArrayList<>();
+        for (int i = 0; i < reservationCount / 2 + 1; i++) {
+            guests.add(new Guest("G" + (100 + i), "Guest " + i, "98765" + (10000 + i % 90000),
+                "guest" + i + "@example.com", "ID" + i, i + " Main Street, Hyderabad"));
+        }
+        
+        List<Reservation> reservations = new ArrayList<>(reservationCount);
+        LocalDate base = LocalDate.of(2020, 1, 1);
+        Reservation.Status[] statuses = Reservation.Status.values();
+        for (int i = 0; i < reservationCount; i++) {
+            LocalDate checkIn = base.plusDays(i / rooms.size());
+            Reservation reservation = new Reservation("RES" + (1001 + i), guests.get(i / 2),
+                rooms.get(i % rooms.size()), checkIn, checkIn.plusDays(1 + i % 4));
+            reservation.setStatus(statuses[i % statuses.length]);
+            reservation.setAdvancePaid(i % 1000);
+            reservations.add(reservation);
+        }
+        
+        List<Guest> liveGuests = new ArrayList<>();
+        List<Guest> historyGuests = new ArrayList<>();
+        List<Reservation> liveReservations = new ArrayList<>();
+        List<Reservation> historyReservations = new ArrayList<>();
+        for (int i = 0; i < guests.size(); i++) {
+            boolean active = false;
+            for (int r = 2 * i; r < Math.min(2 * i + 2, reservationCount); r++) {
+                active |= isActive(reservations.get(r));
+            }
+            (active ? liveGuests : historyGuests).add(guests.get(i));
+        }
+        for (Reservation reservation : reservations) {
+            (isActive(reservation) ? liveReservations : historyReservations).add(reservation);
+        }
+        return new HotelCodec.Snapshot(rooms, liveGuests, liveReservations, historyGuests,
+            historyReservations, SnapshotHistory.EMPTY, 1000 + reservationCount,
+            100 + guests.size(), 0);
+    }
+    
+    private static boolean isActive(Reservation reservation) {
+        return reservation.getStatus() == Reservation.Status.CONFIRMED
+            || reservation.getStatus() == Reservation.Status.CHECKED_IN;
+    }
+    
+    private static SnapshotHistory.Resolver resolver(HotelCodec.Snapshot snapshot) {
+        Map<Integer, Guest> guests = new HashMap<>();
+        for (Guest guest : snapshot.guests) {
+            guests.put(Integer.parseInt(guest.getGuestId().substring(1)), guest);
+        }
+        for (Guest guest : snapshot.historyGuests) {
+            guests.put(Integer.parseInt(guest.getGuestId().substring(1)), guest);
+        }
+        Map<Integer, Room> rooms = new HashMap<>();
+        for (Room room : snapshot.rooms) {
+            rooms.put(room.getRoomNumber(), room);
+        }
+        return new SnapshotHistory.Resolver() {
+            @Override
+            public Guest guest(int guestNumber) {
+                return guests.get(guestNumber);
+            }
+            
+            @Override
+            public Room room(int roomNumber) {
+                return rooms.get(roomNumber);
+            }
+        };
+    }
+    
+    /**
+     * Writes the snapshot the way the original format did: the full lists
+     * and counters, one Java-serialized object after another.
+     */
+    static void writeSerialized(HotelCodec.Snapshot snapshot, File file) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            oos.writeObject(snapshot.rooms);
+            List<Guest> guests = new ArrayList<>(snapshot.guests);
+            guests.addAll(snapshot.historyGuests);
+            List<Reservation> reservations = new ArrayList<>(snapshot.reservations);
+            reservations.addAll(snapshot.historyReservations);
+            oos.writeObject(guests);
+            oos.writeObject(reservations);
+            oos.writeInt(snapshot.reservationCounter);
+            oos.writeInt(snapshot.guestCounter);
+            oos.writeLong(snapshot.journalSequence);
+        }
+    }
+}
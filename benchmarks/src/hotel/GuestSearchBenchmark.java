@@ -0,0 +1,91 @@
+package hotel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guest search over a large register of realistic names, emails and ID
+ * proofs: prefix queries, a query mixing a name with an ID proof, and
+ * fuzzy ones with and without a close match. The index is built directly,
+ * without a {@link Hotel}, so a million guests take seconds to set up.
+ * <p>
+ * The target is under 1 ms per query at a million guests; setup checks
+ * every query against it once the index is warm and fails the trial if one
+ * is over. Override with {@code -p guests=... -p query=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class GuestSearchBenchmark {
+    
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Aditi", "Aditya", "Akash", "Amit", "Ananya", "Anil", "Anjali", "Arjun", "Asha",
+        "Deepak", "Deepika", "Divya", "Gaurav", "Isha", "Karan", "Kavya", "Kiran", "Lakshmi", "Manish",
+        "Meera", "Mohan", "Neha", "Nikhil", "Pooja", "Pradeep", "Priya", "Priyanka", "Rahul", "Rajesh",
+        "Ravi", "Rohan", "Sanjay", "Shreya", "Shruti", "Sneha", "Suresh", "Swati", "Vikram", "Vivek"
+    };
+    private static final String[] LAST_NAMES = {
+        "Agarwal", "Bhat", "Chopra", "Das", "Desai", "Gupta", "Iyer", "Jain", "Joshi", "Kapoor",
+        "Khan", "Kumar", "Mehta", "Menon", "Mishra", "Nair", "Patel", "Pillai", "Rao", "Reddy",
+        "Saxena", "Shah", "Sharma", "Shetty", "Singh", "Sinha", "Srinivasan", "Verma", "Yadav", "Zaveri"
+    };
+    private static final char[] ID_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    
+    private static final int LIMIT = 20;
+    private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    @Param({"1000000"})
+    public int guests;
+    
+    @Param({"priya sh", "rahul 1a", "sharma", "kavyaa", "abcdefghij"})
+    public String query;
+    
+    private GuestSearchIndex index;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new GuestSearchIndex();
+        Random random = new Random(42);
+        char[] id = new char[8];
+        for (int i = 0; i < guests; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            for (int j = 0; j < id.length; j++) {
+                id[j] = ID_CHARS[random.nextInt(ID_CHARS.length)];
+            }
+            index.add(new Guest("G" + (101 + i), first + " " + last, String.valueOf(9000000000L + i),
+                (first + "." + last + i + "@example.com").toLowerCase(), new String(id), "Hyderabad"));
+        }
+        checkTarget();
+    }
+    
+    /**
+     * Warms the query up, then fails the trial if it averages 1 ms or more.
+     */
+    private void checkTarget() {
+        for (int i = 0; i < 2000; i++) {
+            search();
+        }
+        int runs = 500;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            search();
+        }
+        long average = (System.nanoTime() - start) / runs;
+        if (average >= TARGET_NANOS) {
+            throw new IllegalStateException("Search for \"" + query + "\" over " + guests
+                + " guests took " + average / 1000 + " us, target is under 1000 us");
+        }
+    }
+    
+    @Benchmark
+    public List<Guest> search() {
+        return index.search(query, LIMIT);
+    }
+}
@@ -0,0 +1,99 @@
+package hotel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking, lookup and reporting paths of {@link Hotel}, measured against
+ * fixtures from {@link HotelFixture}. Override the sizes with
+ * {@code -p reservations=... -p rooms=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotelBenchmark {
+    
+    @Param({"100", "10000", "1000000"})
+    public int reservations;
+    
+    @Param({"22", "1000", "50000"})
+    public int rooms;
+    
+    private File dataDir;
+    private Hotel hotel;
+    private List<Room> roomList;
+    private Guest guest;
+    private Reservation[] activeReservations;
+    private PrintStream stdout;
+    
+    // Bookings made by makeReservation start after the fixture's last stay
+    private LocalDate firstFreeDay;
+    private int bookingCount;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = HotelFixture.create(rooms, reservations);
+        hotel = new Hotel("Benchmark Hotel", dataDir);
+        roomList = hotel.getAllRooms();
+        guest = hotel.addGuest("Bench Guest", "9999999999", "bench@example.com", "ID", "Street");
+        activeReservations = hotel.getActiveReservations().toArray(new Reservation[0]);
+        firstFreeDay = LocalDate.now().plusDays(5L * (reservations / rooms + 2));
+        
+        // printRoomSummary writes to stdout; keep it out of the results
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+        List<String> mismatches = hotel.checkRoomCounters();
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("Room counters out of sync: " + mismatches);
+        }
+        HotelFixture.delete(dataDir);
+    }
+    
+    @Benchmark
+    public Reservation makeReservation() {
+        int n = bookingCount++;
+        Room room = roomList.get(n % roomList.size());
+        LocalDate checkIn = firstFreeDay.plusDays(2L * (n / roomList.size()));
+        return hotel.makeReservation(guest, room, checkIn, checkIn.plusDays(1), 0);
+    }
+    
+    @Benchmark
+    public Reservation findReservationById() {
+        // Mostly closed reservations, which live in the snapshot history
+        int number = 1001 + ThreadLocalRandom.current().nextInt(reservations);
+        return hotel.findReservationById("RES" + number);
+    }
+    
+    @Benchmark
+    public List<Room> getAvailableRoomsByType() {
+        Room.RoomType[] types = Room.RoomType.values();
+        return hotel.getAvailableRoomsByType(types[ThreadLocalRandom.current().nextInt(types.length)]);
+    }
+    
+    @Benchmark
+    public void printRoomSummary() {
+        hotel.printRoomSummary();
+    }
+    
+    @Benchmark
+    public String generateBill() {
+        Reservation reservation =
+            activeReservations[ThreadLocalRandom.current().nextInt(activeReservations.length)];
+        return reservation.generateBill();
+    }
+}
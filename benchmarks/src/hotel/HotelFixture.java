@@ -0,0 +1,96 @@
+package hotel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds a data directory holding a synthetic hotel of a given size, written
+ * straight through the codec so large fixtures take seconds rather than
+ * replaying a million bookings through the journal.
+ * <p>
+ * Each room gets a run of back-to-back stays. The first 90% are in the past
+ * and closed (checked out, every tenth one cancelled) and go to the archive
+ * with the guests who have no other stay; the rest are confirmed stays
+ * starting tomorrow or later, so every room is free tonight.
+ */
+final class HotelFixture {
+    private static final int STAY_SPACING_DAYS = 5;
+    
+    private HotelFixture() {
+    }
+    
+    static File create(int roomCount, int reservationCount) throws IOException {
+        File dir = Files.createTempDirectory("hotel-bench").toFile();
+        HotelCodec.Snapshot snapshot = snapshot(roomCount, reservationCount);
+        HotelCodec.write(new HotelCodec.Snapshot(snapshot.rooms, snapshot.guests,
+            snapshot.reservations, snapshot.reservationCounter, snapshot.guestCounter, 0),
+            new File(dir, Hotel.DATA_FILE));
+        HotelCodec.writeArchive(new File(dir, Hotel.ARCHIVE_FILE), snapshot.historyGuests,
+            snapshot.historyReservations, Collections.emptySet(), Collections.emptyList());
+        return dir;
+    }
+    
+    static HotelCodec.Snapshot snapshot(int roomCount, int reservationCount) {
+        List<Room> rooms = new ArrayList<>(roomCount);
+        Room.RoomType[] types = Room.RoomType.values();
+        for (int i = 0; i < roomCount; i++) {
+            rooms.add(new Room(100 + i, types[i % types.length], i % 2 == 0, true));
+        }
+        
+        int guestCount = (reservationCount + 1) / 2;
+        List<Guest> guests = new ArrayList<>(guestCount);
+        for (int i = 0; i < guestCount; i++) {
+            guests.add(new Guest("G" + (101 + i), "Guest " + i, String.valueOf(9000000000L + i),
+                "guest" + i + "@example.com", "ID" + i, i + " Main Street, Hyderabad"));
+        }
+        
+        LocalDate today = LocalDate.now();
+        int staysPerRoom = (reservationCount + roomCount - 1) / roomCount;
+        int pastStays = staysPerRoom * 9 / 10;
+        boolean[] guestActive = new boolean[guestCount];
+        List<Reservation> live = new ArrayList<>();
+        List<Reservation> closed = new ArrayList<>();
+        for (int i = 0; i < reservationCount; i++) {
+            Room room = rooms.get(i % roomCount);
+            int stay = i / roomCount;
+            int nights = 1 + i % 3;
+            LocalDate checkIn = stay < pastStays
+                ? today.minusDays((long) (pastStays - stay) * STAY_SPACING_DAYS)
+                : today.plusDays(1 + (long) (stay - pastStays) * STAY_SPACING_DAYS);
+            Reservation.Status status = stay >= pastStays ? Reservation.Status.CONFIRMED
+                : i % 10 == 0 ? Reservation.Status.CANCELLED : Reservation.Status.CHECKED_OUT;
+            Reservation reservation = new Reservation("RES" + (1001 + i), guests.get(i / 2), room,
+                checkIn, checkIn.plusDays(nights), checkIn.minusDays(7), status,
+                nights * room.getPricePerNight(), 1000);
+            if (status == Reservation.Status.CONFIRMED) {
+                live.add(reservation);
+                guestActive[i / 2] = true;
+            } else {
+                closed.add(reservation);
+            }
+        }
+        
+        List<Guest> liveGuests = new ArrayList<>();
+        List<Guest> pastGuests = new ArrayList<>();
+        for (int i = 0; i < guestCount; i++) {
+            (guestActive[i] ? liveGuests : pastGuests).add(guests.get(i));
+        }
+        return new HotelCodec.Snapshot(rooms, liveGuests, live, pastGuests, closed,
+            SnapshotHistory.EMPTY, 1000 + reservationCount, 100 + guestCount, 0);
+    }
+    
+    static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,49 @@
+package hotel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot write ({@link Hotel#compact()}, which runs saveData) and startup
+ * load (the {@link Hotel} constructor, which runs loadData).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    
+    @Param({"100", "10000", "1000000"})
+    public int reservations;
+    
+    @Param({"22", "1000", "50000"})
+    public int rooms;
+    
+    private File dataDir;
+    private Hotel hotel;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = HotelFixture.create(rooms, reservations);
+        hotel = new Hotel("Benchmark Hotel", dataDir);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HotelFixture.delete(dataDir);
+    }
+    
+    @Benchmark
+    public void saveData() {
+        hotel.compact();
+    }
+    
+    @Benchmark
+    public Hotel loadData() {
+        return new Hotel("Benchmark Hotel", dataDir);
+    }
+}
@@ -0,0 +1,118 @@
+package hotel;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waitlist matching in a sold-out hotel: each operation cancels a random
+ * booking, which hands the freed nights to the best of the queued requests,
+ * then queues a new request so the waitlist stays at {@code waiting}
+ * entries. Override the sizes with {@code -p waiting=... -p rooms=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaitlistBenchmark {
+    
+    // Every room is booked night by night for this many days from tomorrow
+    private static final int DAYS = 60;
+    
+    @Param({"100000"})
+    public int waiting;
+    
+    @Param({"1000"})
+    public int rooms;
+    
+    private File dataDir;
+    private Hotel hotel;
+    private Guest guest;
+    private Reservation[] booked;
+    private LocalDate firstDay;
+    // Number of the next reservation ID the hotel will hand out
+    private int nextReservation;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataDir = HotelFixture.create(rooms, 0);
+        hotel = new Hotel("Benchmark Hotel", dataDir);
+        guest = hotel.addGuest("Bench Guest", "9999999999", "bench@example.com", "ID", "Street");
+        firstDay = LocalDate.now().plusDays(1);
+        
+        List<Room> roomList = hotel.getAllRooms();
+        booked = new Reservation[roomList.size() * DAYS];
+        int n = 0;
+        for (Room room : roomList) {
+            for (int day = 0; day < DAYS; day++) {
+                LocalDate checkIn = firstDay.plusDays(day);
+                booked[n++] = hotel.makeReservation(guest, room, checkIn, checkIn.plusDays(1), 0);
+            }
+        }
+        nextReservation = Hotel.idNumber(booked[n - 1].getReservationId(), "RES") + 1;
+        while (hotel.getWaitlistSize() < waiting) {
+            queueRequest();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        List<String> mismatches = hotel.checkRoomCounters();
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("Room counters out of sync: " + mismatches);
+        }
+        HotelFixture.delete(dataDir);
+    }
+    
+    @Benchmark
+    public int cancelAndRefill() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(booked.length);
+        Reservation cancelled = booked[i];
+        hotel.cancelReservation(cancelled);
+        
+        // Keep the hotel sold out: the night goes to the waitlist or is rebooked
+        Reservation refill = filledFromWaitlist(cancelled);
+        if (refill == null) {
+            refill = hotel.makeReservation(guest, cancelled.getRoom(),
+                cancelled.getCheckInDate(), cancelled.getCheckOutDate(), 0);
+        }
+        booked[i] = refill;
+        
+        while (hotel.getWaitlistSize() < waiting) {
+            queueRequest();
+        }
+        return hotel.getWaitlistSize();
+    }
+    
+    /**
+     * The booking the waitlist made for the cancelled night, found among the
+     * reservations created since the last call, or null.
+     */
+    private Reservation filledFromWaitlist(Reservation cancelled) {
+        Reservation filled = null;
+        Reservation reservation;
+        while ((reservation = hotel.findReservationById("RES" + nextReservation)) != null) {
+            nextReservation++;
+            if (reservation.getRoom().equals(cancelled.getRoom())
+                    && reservation.getCheckInDate().equals(cancelled.getCheckInDate())) {
+                filled = reservation;
+            }
+        }
+        return filled;
+    }
+    
+    private void queueRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Room.RoomType[] types = Room.RoomType.values();
+        LocalDate checkIn = firstDay.plusDays(random.nextInt(DAYS - 1));
+        hotel.joinWaitlist(guest, types[random.nextInt(types.length)], checkIn,
+            checkIn.plusDays(1 + random.nextInt(3)), 0);
+    }
+}
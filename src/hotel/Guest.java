@@ -8,12 +8,26 @@ import java.io.Serializable;
 public class Guest implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    public static final String FIELD_NAME = "name";
+    public static final String FIELD_PHONE = "phone";
+    public static final String FIELD_EMAIL = "email";
+    public static final String FIELD_ID_PROOF = "idProof";
+    public static final String FIELD_ADDRESS = "address";
+    
+    /**
+     * Notified after a setter changes one of the guest's fields.
+     */
+    public interface ChangeListener {
+        void guestChanged(Guest guest, String field, String oldValue);
+    }
+    
     private String guestId;
     private String name;
     private String phone;
     private String email;
     private String idProof; // Aadhar/Passport number
     private String address;
+    private transient ChangeListener changeListener;
     
     public Guest(String guestId, String name, String phone, String email, String idProof, String address) {
         this.guestId = guestId;
@@ -33,10 +47,50 @@ public class Guest implements Serializable {
     public String getAddress() { return address; }
     
     // Setters
-    public void setName(String name) { this.name = name; }
-    public void setPhone(String phone) { this.phone = phone; }
-    public void setEmail(String email) { this.email = email; }
-    public void setAddress(String address) { this.address = address; }
+    public void setName(String name) {
+        String old = this.name;
+        this.name = name;
+        fireChanged(FIELD_NAME, old);
+    }
+    
+    public void setPhone(String phone) {
+        String old = this.phone;
+        this.phone = phone;
+        fireChanged(FIELD_PHONE, old);
+    }
+    
+    public void setEmail(String email) {
+        String old = this.email;
+        this.email = email;
+        fireChanged(FIELD_EMAIL, old);
+    }
+    
+    public void setIdProof(String idProof) {
+        String old = this.idProof;
+        this.idProof = idProof;
+        fireChanged(FIELD_ID_PROOF, old);
+    }
+    
+    public void setAddress(String address) {
+        String old = this.address;
+        this.address = address;
+        fireChanged(FIELD_ADDRESS, old);
+    }
+    
+    void setChangeListener(ChangeListener listener) { this.changeListener = listener; }
+    
+    // Names and addresses repeat across many guests (families, shared
+    // addresses); swap them for the equal instances the cache already holds
+    void shareStrings(StringCache cache) {
+        name = cache.share(name);
+        address = cache.share(address);
+    }
+    
+    private void fireChanged(String field, String oldValue) {
+        if (changeListener != null) {
+            changeListener.guestChanged(this, field, oldValue);
+        }
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,631 @@
+package hotel;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Search index over guest names, emails and ID proofs.
+ * <p>
+ * Terms are kept lower-case in sorted maps, so a prefix query is a range scan
+ * from the first term at or above the prefix: name words in one map, whole
+ * emails and ID proofs in another. Each term maps to the sorted ordinals of
+ * the guests holding it, so the words of a query are matched by intersecting
+ * int arrays rather than by visiting guests. Fuzzy queries walk the name map
+ * as if it were a trie, sharing edit-distance rows between neighbouring terms
+ * and skipping whole branches as soon as they cannot come within the allowed
+ * number of edits.
+ * <p>
+ * Reads are lock-free; updates are serialized on the index.
+ */
+class GuestSearchIndex {
+    
+    // Terms read while picking the word to drive a query
+    private static final int MAX_RACE_TERMS = 256;
+    // Terms of a filtering word that are intersected one by one
+    private static final int MAX_PROBED_TERMS = 8;
+    // Guests of the remaining terms that are merged into one list to intersect;
+    // past this the guest's own fields are checked instead
+    private static final int MAX_MERGED_POSTINGS = 1024;
+    // Distance rows a fuzzy walk may compute before it settles for what it found
+    private static final int MAX_FUZZY_ROWS = 20000;
+    
+    private final ConcurrentSkipListMap<String, Postings> nameTerms = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Postings> contactTerms = new ConcurrentSkipListMap<>();
+    
+    // Ordinals are handed out in insertion order and never reused
+    private final Map<Guest, Integer> ordinals = new HashMap<>(); // guarded by this
+    private volatile Guest[] guests = new Guest[1024];
+    private int nextOrdinal; // guarded by this
+    
+    /**
+     * The guests holding one term, as ordinals in ascending order. Instances
+     * are immutable to readers: a new guest appends in place past the
+     * {@code size} every existing reader stops at, and anything else copies.
+     */
+    private static final class Postings {
+        final int[] ids;
+        final int size;
+        
+        private Postings(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+        
+        static Postings of(int ordinal) {
+            return new Postings(new int[] {ordinal}, 1);
+        }
+        
+        Postings with(int ordinal) {
+            int at = Arrays.binarySearch(ids, 0, size, ordinal);
+            if (at >= 0) {
+                return this;
+            }
+            at = -at - 1;
+            if (at == size && size < ids.length) {
+                ids[size] = ordinal;
+                return new Postings(ids, size + 1);
+            }
+            int[] grown = new int[size + (size >> 1) + 1];
+            System.arraycopy(ids, 0, grown, 0, at);
+            grown[at] = ordinal;
+            System.arraycopy(ids, at, grown, at + 1, size - at);
+            return new Postings(grown, size + 1);
+        }
+        
+        /** Null once the last guest is gone. */
+        Postings without(int ordinal) {
+            int at = Arrays.binarySearch(ids, 0, size, ordinal);
+            if (at < 0) {
+                return this;
+            }
+            if (size == 1) {
+                return null;
+            }
+            int[] shrunk = new int[size - 1];
+            System.arraycopy(ids, 0, shrunk, 0, at);
+            System.arraycopy(ids, at + 1, shrunk, at, size - at - 1);
+            return new Postings(shrunk, size - 1);
+        }
+    }
+    
+    // ==================== UPDATES ====================
+    
+    synchronized void add(Guest guest) {
+        Integer ordinal = ordinals.get(guest);
+        if (ordinal == null) {
+            ordinal = nextOrdinal++;
+            ordinals.put(guest, ordinal);
+            Guest[] current = guests;
+            if (ordinal == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[ordinal] = guest;
+            // Published before any posting that refers to the ordinal
+            guests = current;
+        }
+        for (String term : tokenize(guest.getName())) {
+            addPosting(nameTerms, term, ordinal);
+        }
+        for (String term : contactTerms(guest.getEmail(), guest.getIdProof())) {
+            addPosting(contactTerms, term, ordinal);
+        }
+    }
+    
+    synchronized void remove(Guest guest) {
+        Integer ordinal = ordinals.remove(guest);
+        if (ordinal == null) {
+            return;
+        }
+        for (String term : tokenize(guest.getName())) {
+            removePosting(nameTerms, term, ordinal);
+        }
+        for (String term : contactTerms(guest.getEmail(), guest.getIdProof())) {
+            removePosting(contactTerms, term, ordinal);
+        }
+        guests[ordinal] = null;
+    }
+    
+    /**
+     * Re-indexes a guest after one of its fields changed from {@code oldValue}.
+     */
+    synchronized void update(Guest guest, String field, String oldValue) {
+        Integer ordinal = ordinals.get(guest);
+        if (ordinal == null) {
+            return;
+        }
+        if (Guest.FIELD_NAME.equals(field)) {
+            reindex(nameTerms, ordinal, new HashSet<>(tokenize(oldValue)),
+                new HashSet<>(tokenize(guest.getName())));
+        } else if (Guest.FIELD_EMAIL.equals(field)) {
+            reindex(contactTerms, ordinal, contactTerms(oldValue, guest.getIdProof()),
+                contactTerms(guest.getEmail(), guest.getIdProof()));
+        } else if (Guest.FIELD_ID_PROOF.equals(field)) {
+            reindex(contactTerms, ordinal, contactTerms(guest.getEmail(), oldValue),
+                contactTerms(guest.getEmail(), guest.getIdProof()));
+        }
+    }
+    
+    private static void reindex(Map<String, Postings> terms, int ordinal, Set<String> previous,
+                                Set<String> current) {
+        for (String term : previous) {
+            if (!current.contains(term)) {
+                removePosting(terms, term, ordinal);
+            }
+        }
+        for (String term : current) {
+            addPosting(terms, term, ordinal);
+        }
+    }
+    
+    private static void addPosting(Map<String, Postings> terms, String term, int ordinal) {
+        Postings postings = terms.get(term);
+        terms.put(term, postings == null ? Postings.of(ordinal) : postings.with(ordinal));
+    }
+    
+    private static void removePosting(Map<String, Postings> terms, String term, int ordinal) {
+        Postings postings = terms.get(term);
+        if (postings == null) {
+            return;
+        }
+        Postings rest = postings.without(ordinal);
+        if (rest == null) {
+            terms.remove(term);
+        } else {
+            terms.put(term, rest);
+        }
+    }
+    
+    // ==================== QUERIES ====================
+    
+    /**
+     * Guests matching every word of the query as the prefix of a name word,
+     * email or ID proof, up to {@code limit}. If none match, the longest word
+     * that is not the prefix of any term is retried as a misspelt name word,
+     * closest matches first.
+     * <p>
+     * The scan is driven by the word with the fewest postings; the other
+     * words only filter its guests by intersecting postings.
+     */
+    List<Guest> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        // Longest first: it usually matches fewest terms, so it wins ties
+        words.sort(Comparator.comparingInt(String::length).reversed());
+        List<TermRange> ranges = new ArrayList<>(words.size());
+        for (String word : words) {
+            ranges.add(new TermRange(word));
+        }
+        
+        TermRange driver = ranges.size() == 1 ? ranges.get(0) : smallest(ranges);
+        List<TermRange> others = filters(ranges, driver);
+        Set<Guest> found = new LinkedHashSet<>();
+        for (int i = 0; i < driver.postings.size() || driver.advance(); i++) {
+            if (collect(driver.postings.get(i), others, found, limit)) {
+                return new ArrayList<>(found);
+            }
+        }
+        if (!found.isEmpty()) {
+            return new ArrayList<>(found);
+        }
+        
+        TermRange misspelt = null;
+        for (TermRange range : ranges) {
+            if (range.count == 0 && !range.advance()) {
+                misspelt = range;
+                break;
+            }
+        }
+        int maxEdits = misspelt == null ? 0 : maxEdits(misspelt.prefix);
+        if (maxEdits > 0) {
+            others = filters(ranges, misspelt);
+            for (String term : fuzzyNameTerms(misspelt.prefix, maxEdits)) {
+                Postings postings = nameTerms.get(term);
+                if (postings != null && collect(postings, others, found, limit)) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+    
+    /**
+     * Reads the ranges side by side, always advancing the one with the
+     * fewest postings so far, until that one runs out of terms: it then has
+     * the fewest postings overall. Gives up after {@link #MAX_RACE_TERMS}
+     * terms and takes the smallest so far, which still avoids the big ones.
+     */
+    private static TermRange smallest(List<TermRange> ranges) {
+        TermRange lowest = ranges.get(0);
+        for (int terms = 0; terms <= MAX_RACE_TERMS; terms++) {
+            lowest = ranges.get(0);
+            for (TermRange range : ranges) {
+                if (range.count < lowest.count) {
+                    lowest = range;
+                }
+            }
+            if (lowest.complete || !lowest.advance()) {
+                break;
+            }
+        }
+        return lowest;
+    }
+    
+    /**
+     * The ranges other than {@code driver}, ready to filter with; the ones
+     * answered from postings alone go first.
+     */
+    private static List<TermRange> filters(List<TermRange> ranges, TermRange driver) {
+        List<TermRange> others = new ArrayList<>(ranges.size());
+        for (TermRange range : ranges) {
+            if (range != driver) {
+                range.prepare();
+                others.add(range);
+            }
+        }
+        others.sort(Comparator.comparing(range -> !range.exact));
+        return others;
+    }
+    
+    /**
+     * Adds the guests in {@code postings} that also match the other words.
+     * Returns true once {@code limit} guests have been found.
+     */
+    private boolean collect(Postings postings, List<TermRange> others, Set<Guest> found, int limit) {
+        for (TermRange other : others) {
+            other.rewind();
+        }
+        int[] ids = postings.ids;
+        for (int i = 0; i < postings.size; i++) {
+            int ordinal = ids[i];
+            if (matchesAll(ordinal, others)) {
+                Guest guest = guests[ordinal];
+                if (guest != null && found.add(guest) && found.size() >= limit) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static boolean matchesAll(int ordinal, List<TermRange> others) {
+        for (TermRange range : others) {
+            if (!range.contains(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * The terms starting with one query word, name words before emails and
+     * ID proofs, read lazily one term at a time. The postings read so far
+     * are kept so the range can first be sized, then scanned or used as a
+     * filter.
+     */
+    private final class TermRange {
+        final String prefix;
+        final List<Postings> postings = new ArrayList<>();
+        long count;
+        boolean complete;
+        private boolean inContacts;
+        private int namePostings;
+        private Iterator<Postings> terms;
+        
+        // Filter state, set by prepare()
+        private Postings[] probed;
+        private int[] cursors;
+        boolean exact;
+        
+        TermRange(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        /**
+         * Reads the next term's postings; false once there are no more.
+         */
+        boolean advance() {
+            while (!complete) {
+                if (terms == null) {
+                    ConcurrentSkipListMap<String, Postings> map = inContacts ? contactTerms : nameTerms;
+                    String end = prefix.substring(0, prefix.length() - 1)
+                        + (char) (prefix.charAt(prefix.length() - 1) + 1);
+                    terms = map.subMap(prefix, end).values().iterator();
+                }
+                if (terms.hasNext()) {
+                    Postings next = terms.next();
+                    postings.add(next);
+                    count += next.size;
+                    if (!inContacts) {
+                        namePostings++;
+                    }
+                    return true;
+                }
+                if (inContacts) {
+                    complete = true;
+                } else {
+                    inContacts = true;
+                    terms = null;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * Sets the range up as a filter: the first few terms are probed
+         * directly, the rest merged into one sorted list when they hold few
+         * enough guests to read them all. Otherwise guests the probes miss
+         * are checked against their own fields.
+         */
+        void prepare() {
+            if (probed != null) {
+                return;
+            }
+            long merged = 0;
+            for (int i = MAX_PROBED_TERMS; i < postings.size(); i++) {
+                merged += postings.get(i).size;
+            }
+            while (merged <= MAX_MERGED_POSTINGS && advance()) {
+                if (postings.size() > MAX_PROBED_TERMS) {
+                    merged += postings.get(postings.size() - 1).size;
+                }
+            }
+            int direct = Math.min(postings.size(), MAX_PROBED_TERMS);
+            exact = complete && postings.size() == direct;
+            if (complete && !exact && merged <= MAX_MERGED_POSTINGS) {
+                int[] tail = new int[(int) merged];
+                int n = 0;
+                for (Postings term : postings.subList(direct, postings.size())) {
+                    System.arraycopy(term.ids, 0, tail, n, term.size);
+                    n += term.size;
+                }
+                Arrays.sort(tail, 0, n);
+                probed = postings.subList(0, direct).toArray(new Postings[direct + 1]);
+                probed[direct] = new Postings(tail, n);
+                exact = true;
+            } else {
+                probed = postings.subList(0, direct).toArray(new Postings[direct]);
+            }
+            cursors = new int[probed.length];
+        }
+        
+        /**
+         * Restarts the probes; {@link #contains} must then be asked about
+         * ordinals in ascending order.
+         */
+        void rewind() {
+            Arrays.fill(cursors, 0);
+        }
+        
+        boolean contains(int ordinal) {
+            for (int i = 0; i < probed.length; i++) {
+                Postings term = probed[i];
+                int at = seek(term.ids, cursors[i], term.size, ordinal);
+                cursors[i] = at;
+                if (at < term.size && term.ids[at] == ordinal) {
+                    return true;
+                }
+            }
+            if (exact) {
+                return false;
+            }
+            Guest guest = guests[ordinal];
+            if (guest == null) {
+                return false;
+            }
+            // Past the name words, only the contact fields can still match
+            return inContacts && namePostings <= MAX_PROBED_TERMS
+                ? startsWithIgnoreCase(guest.getEmail(), prefix) || startsWithIgnoreCase(guest.getIdProof(), prefix)
+                : hasTermWithPrefix(guest, prefix);
+        }
+    }
+    
+    /**
+     * Index of the first of {@code ids[from..size)} not below {@code ordinal},
+     * galloping ahead from {@code from} so a run of ascending lookups costs
+     * about as much as merging the two lists.
+     */
+    private static int seek(int[] ids, int from, int size, int ordinal) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < size && ids[high] < ordinal) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < ordinal) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * True if a name word, the email or the ID proof of the guest starts
+     * with the (lower-case) prefix, read from the fields without tokenizing.
+     */
+    private static boolean hasTermWithPrefix(Guest guest, String prefix) {
+        return hasWordWithPrefix(guest.getName(), prefix)
+            || startsWithIgnoreCase(guest.getEmail(), prefix)
+            || startsWithIgnoreCase(guest.getIdProof(), prefix);
+    }
+    
+    private static boolean hasWordWithPrefix(String text, String prefix) {
+        if (text == null) {
+            return false;
+        }
+        boolean wordStart = true;
+        for (int i = 0; i < text.length(); i++) {
+            boolean wordChar = isWordChar(text.charAt(i));
+            if (wordChar && wordStart && regionMatches(text, i, prefix)) {
+                return true;
+            }
+            wordStart = !wordChar;
+        }
+        return false;
+    }
+    
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        if (value == null) {
+            return false;
+        }
+        int start = 0;
+        while (start < value.length() && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return regionMatches(value, start, prefix);
+    }
+    
+    private static boolean regionMatches(String text, int offset, String prefix) {
+        if (text.length() - offset < prefix.length()) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (Character.toLowerCase(text.charAt(offset + k)) != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Edits allowed for a fuzzy match: none for very short words, where
+     * almost everything would match, then one, and two only from 10 letters
+     * on, where the extra edit no longer blows up the walk.
+     */
+    private static int maxEdits(String word) {
+        return word.length() < 3 ? 0 : word.length() < 10 ? 1 : 2;
+    }
+    
+    /**
+     * Name words within {@code maxEdits} (Levenshtein distance) of the word,
+     * closest first. Like most spelling correctors it trusts the first letter,
+     * which keeps the walk to one slice of the map. The walk stops after
+     * {@link #MAX_FUZZY_ROWS} rows, so a long word with no close match in a
+     * dense slice costs a bounded amount; the terms found by then are returned.
+     */
+    List<String> fuzzyNameTerms(String word, int maxEdits) {
+        int length = word.length();
+        // rows[d] holds the distances from the first d letters of the current term;
+        // every term is pruned before it gets deeper than length + maxEdits + 1
+        int[][] rows = new int[length + maxEdits + 2][length + 1];
+        for (int j = 0; j <= length; j++) {
+            rows[0][j] = j;
+        }
+        
+        // Matches grouped by distance, so the closest come out first
+        List<List<String>> matches = new ArrayList<>();
+        for (int i = 0; i <= maxEdits; i++) {
+            matches.add(new ArrayList<>());
+        }
+        String first = word.substring(0, 1);
+        String previous = "";
+        int rowsLeft = MAX_FUZZY_ROWS;
+        Iterator<String> terms = nameTerms.tailMap(first).keySet().iterator();
+        while (terms.hasNext() && rowsLeft > 0) {
+            String term = terms.next();
+            if (!term.startsWith(first)) {
+                break;
+            }
+            // Rows for the prefix shared with the previous term are still valid
+            int shared = 0;
+            int common = Math.min(term.length(), previous.length());
+            while (shared < common && term.charAt(shared) == previous.charAt(shared)) {
+                shared++;
+            }
+            previous = term;
+            
+            int depth = shared;
+            boolean pruned = false;
+            while (depth < term.length()) {
+                rowsLeft--;
+                int[] above = rows[depth];
+                int[] row = rows[depth + 1];
+                char c = term.charAt(depth);
+                row[0] = depth + 1;
+                int best = row[0];
+                for (int j = 1; j <= length; j++) {
+                    int cost = word.charAt(j - 1) == c ? 0 : 1;
+                    row[j] = Math.min(Math.min(row[j - 1] + 1, above[j] + 1), above[j - 1] + cost);
+                    best = Math.min(best, row[j]);
+                }
+                depth++;
+                if (best > maxEdits) {
+                    pruned = true;
+                    break;
+                }
+            }
+            
+            if (pruned) {
+                // No term starting with these letters can match; jump past all of them
+                char last = term.charAt(depth - 1);
+                if (last != Character.MAX_VALUE) {
+                    String next = term.substring(0, depth - 1) + (char) (last + 1);
+                    terms = nameTerms.tailMap(next).keySet().iterator();
+                }
+            } else if (rows[depth][length] <= maxEdits) {
+                matches.get(rows[depth][length]).add(term);
+            }
+        }
+        
+        List<String> sorted = new ArrayList<>();
+        for (List<String> group : matches) {
+            sorted.addAll(group);
+        }
+        return sorted;
+    }
+    
+    // ==================== TERMS ====================
+    
+    /**
+     * The whole email and ID proof, lower-cased.
+     */
+    private static Set<String> contactTerms(String email, String idProof) {
+        Set<String> result = new HashSet<>(4);
+        addWhole(result, email);
+        addWhole(result, idProof);
+        return result;
+    }
+    
+    private static void addWhole(Set<String> result, String value) {
+        if (value != null) {
+            String term = value.trim().toLowerCase(Locale.ROOT);
+            if (!term.isEmpty()) {
+                result.add(term);
+            }
+        }
+    }
+    
+    /**
+     * Splits text into lower-case words at anything other than a letter,
+     * digit, '@' or '.', so emails and ID numbers in a query stay whole.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (isWordChar(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+    
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '@' || c == '.';
+    }
+}
@@ -1,34 +1,156 @@
 package hotel;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * Main hotel management class that handles all operations.
+ * <p>
+ * Safe for concurrent use. Changes to a room's bookings are serialized by a
+ * striped per-room lock, while lookups read the concurrent collections
+ * directly and reports read an immutable {@link HotelView}; neither waits
+ * for writers.
  */
 public class Hotel {
     private String hotelName;
-    private List<Room> rooms;
-    private List<Guest> guests;
-    private List<Reservation> reservations;
-    private int reservationCounter;
-    private int guestCounter;
-    private static final String DATA_FILE = "hotel_data.ser";
+    private RoomStore roomStore;
+    private Queue<Guest> guests;
+    private Queue<Reservation> reservations;
+    private Map<Integer, RoomCalendar> calendars;
+    
+    // Hash indexes kept alongside the lists above
+    private RoomIndex roomIndex;
+    private Map<String, Guest> guestsById;
+    private Map<String, Guest> guestsByPhone;
+    private Map<String, Guest> guestsByIdProof;
+    private GuestSearchIndex guestSearch;
+    private final StringCache guestStrings;
+    private Map<String, Reservation> reservationsById;
+    private Map<Integer, Reservation> activeReservationByRoom;
+    // Confirmed and checked-in reservations by number, so active queries skip closed ones
+    private Map<Integer, Reservation> activeReservations;
+    
+    // Room counts per type (by ordinal), kept current by Room's availability listener
+    private final AtomicIntegerArray roomsByType;
+    private final AtomicIntegerArray availableByType;
+    private final AtomicInteger reservationCounter;
+    private final AtomicInteger guestCounter;
+    private long journalSequence;
+    private final HotelJournal journal;
+    private final HotelMetrics metrics;
+    private final ReservationFeed changeFeed;
+    private final RateCalendar rateCalendar;
+    private final Waitlist waitlist;
+    private final AtomicLong waitlistCounter;
+    // Current read-only version of rooms and reservations for reports
+    private final AtomicReference<HotelView> view;
+    
+    // Archived reservations and their guests, decoded from the mapped archive on demand
+    private volatile SnapshotHistory history;
+    private volatile int archiveAfterDays;
+    private final File dataDir;
+    
+    // Mutations share the read side; compaction takes the write side so a
+    // snapshot never races with a half-applied change
+    private final ReentrantReadWriteLock persistenceLock;
+    private final ReentrantLock[] roomLocks;
+    // Serializes findOrAddGuest so one person is never registered twice
+    private final ReentrantLock guestLock;
+    // Set while runBatch holds the write lock; changes then skip the journal
+    private boolean batching;
+    // Writes captured snapshots to disk one at a time, in capture order
+    private final ExecutorService checkpointer;
+    // Last background checkpoint; another starts only once it is done
+    private volatile Future<Boolean> backgroundCheckpoint;
+    
+    static final String DATA_FILE = "hotel_data.dat";
+    static final String ARCHIVE_FILE = "hotel_archive.dat";
+    private static final String LEGACY_DATA_FILE = "hotel_data.ser";
+    private static final String JOURNAL_FILE = "hotel_data.journal";
+    private static final String RATES_FILE = "hotel_rates.txt";
+    private static final int COMPACT_THRESHOLD = 1000;
+    private static final int ARCHIVE_BATCH = 1000;
+    private static final int LOCK_STRIPES = 64;
+    private static final int GUEST_STRING_SLOTS = 1 << 16;
     
     public Hotel(String hotelName) {
+        this(hotelName, null);
+    }
+    
+    /**
+     * @param dataDir directory holding the data files, or null for the
+     *                working directory
+     */
+    public Hotel(String hotelName, File dataDir) {
         this.hotelName = hotelName;
-        this.rooms = new ArrayList<>();
-        this.guests = new ArrayList<>();
-        this.reservations = new ArrayList<>();
-        this.reservationCounter = 1000;
-        this.guestCounter = 100;
+        this.dataDir = dataDir;
+        this.roomStore = new RoomStore();
+        this.roomStore.setAvailabilityListener(this::roomAvailabilityChanged);
+        this.guests = new ConcurrentLinkedQueue<>();
+        this.reservations = new ConcurrentLinkedQueue<>();
+        this.calendars = new ConcurrentHashMap<>();
+        this.roomIndex = new RoomIndex(roomStore);
+        this.waitlist = new Waitlist();
+        this.waitlistCounter = new AtomicLong();
+        this.view = new AtomicReference<>(new HotelView(0, roomStore, 0, VersionedArray.empty(),
+            VersionedArray.empty(), VersionedArray.empty(), VersionedArray.empty(), SnapshotHistory.EMPTY));
+        this.guestsById = new ConcurrentHashMap<>();
+        this.guestsByPhone = new ConcurrentHashMap<>();
+        this.guestsByIdProof = new ConcurrentHashMap<>();
+        this.guestSearch = new GuestSearchIndex();
+        this.guestStrings = new StringCache(GUEST_STRING_SLOTS);
+        this.reservationsById = new ConcurrentHashMap<>();
+        this.activeReservationByRoom = new ConcurrentHashMap<>();
+        this.activeReservations = new ConcurrentSkipListMap<>();
+        this.roomsByType = new AtomicIntegerArray(Room.RoomType.values().length);
+        this.availableByType = new AtomicIntegerArray(Room.RoomType.values().length);
+        this.reservationCounter = new AtomicInteger(1000);
+        this.guestCounter = new AtomicInteger(100);
+        this.journal = new HotelJournal(new File(dataDir, JOURNAL_FILE));
+        this.metrics = new HotelMetrics();
+        this.changeFeed = new ReservationFeed(Integer.getInteger("hotel.feed.capacity", 4096));
+        // Start with a year back (late bookings, replays) to two years ahead; quotes outside move it
+        this.rateCalendar = new RateCalendar(LocalDate.now().minusYears(1), 3 * 366);
+        loadRates();
+        this.history = SnapshotHistory.EMPTY;
+        this.archiveAfterDays = Integer.getInteger("hotel.archive.afterDays", 30);
+        this.persistenceLock = new ReentrantReadWriteLock();
+        this.guestLock = new ReentrantLock();
+        this.roomLocks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            roomLocks[i] = new ReentrantLock();
+        }
+        this.checkpointer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hotel-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
         
         // Load existing data or initialize with default rooms
-        if (!loadData()) {
+        long start = metrics.start();
+        boolean loaded = loadData();
+        metrics.record(HotelMetrics.Operation.LOAD_DATA, start);
+        if (!loaded) {
             initializeRooms();
         }
     }
@@ -39,161 +161,1425 @@ public class Hotel {
     private void initializeRooms() {
         // Single Rooms (101-105)
         for (int i = 101; i <= 105; i++) {
-            rooms.add(new Room(i, Room.RoomType.SINGLE, i % 2 == 0, true));
+            addRoom(new Room(i, Room.RoomType.SINGLE, i % 2 == 0, true));
         }
         // Double Rooms (201-208)
         for (int i = 201; i <= 208; i++) {
-            rooms.add(new Room(i, Room.RoomType.DOUBLE, true, true));
+            addRoom(new Room(i, Room.RoomType.DOUBLE, true, true));
         }
         // Deluxe Rooms (301-306)
         for (int i = 301; i <= 306; i++) {
-            rooms.add(new Room(i, Room.RoomType.DELUXE, true, true));
+            addRoom(new Room(i, Room.RoomType.DELUXE, true, true));
         }
         // Suites (401-403)
         for (int i = 401; i <= 403; i++) {
-            rooms.add(new Room(i, Room.RoomType.SUITE, true, true));
+            addRoom(new Room(i, Room.RoomType.SUITE, true, true));
         }
+        rebuildView();
         saveData();
     }
     
+    private void addRoom(Room room) {
+        int slot = roomStore.add(room);
+        roomIndex.add(slot);
+        int type = room.getRoomType().ordinal();
+        roomsByType.incrementAndGet(type);
+        if (room.isAvailable()) {
+            availableByType.incrementAndGet(type);
+        }
+    }
+    
+    private void roomAvailabilityChanged(Room room, boolean available) {
+        availableByType.addAndGet(room.getRoomType().ordinal(), available ? 1 : -1);
+        roomIndex.availabilityChanged(roomStore.slotOf(room.getRoomNumber()), available);
+    }
+    
     // ==================== ROOM OPERATIONS ====================
     
     public List<Room> getAllRooms() {
-        return new ArrayList<>(rooms);
+        return roomStore.views();
     }
     
+    /**
+     * Rooms that are unoccupied and not booked for tonight.
+     */
     public List<Room> getAvailableRooms() {
-        return rooms.stream()
-            .filter(Room::isAvailable)
-            .collect(Collectors.toList());
+        return findRooms(null, null, null, null, null);
     }
     
     public List<Room> getAvailableRoomsByType(Room.RoomType type) {
-        return rooms.stream()
-            .filter(r -> r.isAvailable() && r.getRoomType() == type)
-            .collect(Collectors.toList());
+        return findRooms(type, null, null, null, null);
+    }
+    
+    /**
+     * Rooms with no booking overlapping the nights in [checkIn, checkOut).
+     */
+    public List<Room> getAvailableRooms(LocalDate checkIn, LocalDate checkOut) {
+        return findRooms(null, null, null, checkIn, checkOut);
+    }
+    
+    public List<Room> getAvailableRoomsByType(Room.RoomType type, LocalDate checkIn, LocalDate checkOut) {
+        return findRooms(type, null, null, checkIn, checkOut);
+    }
+    
+    /**
+     * Rooms of the given type, with or without AC and WiFi (null matches
+     * either), that are free for the nights in [checkIn, checkOut); without
+     * dates, rooms that are unoccupied and not booked for tonight.
+     * The attribute filters are answered from the room bitmap index, so
+     * only matching rooms have their calendars checked.
+     */
+    public List<Room> findRooms(Room.RoomType type, Boolean ac, Boolean wifi,
+                                LocalDate checkIn, LocalDate checkOut) {
+        boolean tonight = checkIn == null || checkOut == null;
+        LocalDate from = tonight ? LocalDate.now() : checkIn;
+        LocalDate to = tonight ? from.plusDays(1) : checkOut;
+        if (!to.isAfter(from)) {
+            return new ArrayList<>();
+        }
+        BitSet matches = roomIndex.match(type, ac, wifi, tonight);
+        return roomIndex.rooms(matches, room -> calendarFor(room).isFree(from, to));
+    }
+    
+    public boolean isRoomAvailable(Room room, LocalDate checkIn, LocalDate checkOut) {
+        return checkOut.isAfter(checkIn) && calendarFor(room).isFree(checkIn, checkOut);
+    }
+    
+    private RoomCalendar calendarFor(Room room) {
+        return calendars.computeIfAbsent(room.getRoomNumber(), n -> new RoomCalendar());
     }
     
     public Room getRoomByNumber(int roomNumber) {
-        return rooms.stream()
-            .filter(r -> r.getRoomNumber() == roomNumber)
-            .findFirst()
-            .orElse(null);
+        return roomStore.find(roomNumber);
+    }
+    
+    // Occupancy counts below are maintained incrementally and cost O(1)
+    
+    public int getRoomCount() {
+        return roomStore.size();
+    }
+    
+    public int getRoomCount(Room.RoomType type) {
+        return roomsByType.get(type.ordinal());
+    }
+    
+    /**
+     * Rooms not currently occupied by a checked-in guest.
+     */
+    public int getAvailableRoomCount() {
+        int available = 0;
+        for (int i = 0; i < availableByType.length(); i++) {
+            available += availableByType.get(i);
+        }
+        return available;
+    }
+    
+    public int getAvailableRoomCount(Room.RoomType type) {
+        return availableByType.get(type.ordinal());
+    }
+    
+    /**
+     * Recounts rooms with a full scan and compares against the incremental
+     * counters. Returns a description of each mismatch, or an empty list.
+     */
+    List<String> checkRoomCounters() {
+        List<String> mismatches = new ArrayList<>();
+        for (Room.RoomType type : Room.RoomType.values()) {
+            int total = 0;
+            int available = 0;
+            for (int slot = 0; slot < roomStore.size(); slot++) {
+                if (roomStore.type(slot) == type) {
+                    total++;
+                    if (roomStore.hasFlag(slot, RoomStore.FLAG_AVAILABLE)) {
+                        available++;
+                    }
+                }
+            }
+            if (total != getRoomCount(type)) {
+                mismatches.add(type + " total: counter " + getRoomCount(type) + ", scan " + total);
+            }
+            if (available != getAvailableRoomCount(type)) {
+                mismatches.add(type + " available: counter " + getAvailableRoomCount(type)
+                    + ", scan " + available);
+            }
+        }
+        return mismatches;
     }
     
     // ==================== GUEST OPERATIONS ====================
     
     public Guest addGuest(String name, String phone, String email, String idProof, String address) {
-        String guestId = "G" + (++guestCounter);
+        return mutate(null, () -> createGuest(name, phone, email, idProof, address));
+    }
+    
+    /**
+     * Returns the guest already known by this ID proof or phone number (see
+     * {@link #findGuestByIdentity}), or registers a new one. An existing
+     * guest's details are left as they are.
+     */
+    public Guest findOrAddGuest(String name, String phone, String email, String idProof,
+                                String address) {
+        return mutate(null, () -> {
+            guestLock.lock();
+            try {
+                Guest existing = findGuestByIdentity(phone, idProof);
+                return existing != null ? existing : createGuest(name, phone, email, idProof, address);
+            } finally {
+                guestLock.unlock();
+            }
+        });
+    }
+    
+    private Guest createGuest(String name, String phone, String email, String idProof, String address) {
+        String guestId = "G" + guestCounter.incrementAndGet();
         Guest guest = new Guest(guestId, name, phone, email, idProof, address);
-        guests.add(guest);
-        saveData();
+        registerGuest(guest);
+        view.updateAndGet(current -> current.withGuest(guest));
+        if (!batching) {
+            try {
+                journal.logGuest(guest);
+            } catch (IOException e) {
+                System.out.println("Error writing journal: " + e.getMessage());
+            }
+        }
         return guest;
     }
     
+    /**
+     * Finds the returning guest for these details: the guest with this ID
+     * proof, otherwise the guest with this phone number unless both carry
+     * different ID proofs (a relative sharing the number). ID proofs match
+     * ignoring case and spaces; archived guests are only found by phone.
+     */
+    public Guest findGuestByIdentity(String phone, String idProof) {
+        String proof = normalizeIdProof(idProof);
+        if (!proof.isEmpty()) {
+            Guest guest = guestsByIdProof.get(proof);
+            if (guest != null) {
+                return guest;
+            }
+        }
+        Guest guest = findGuestByPhone(phone == null ? null : phone.trim());
+        if (guest == null) {
+            return null;
+        }
+        String other = normalizeIdProof(guest.getIdProof());
+        return proof.isEmpty() || other.isEmpty() || proof.equals(other) ? guest : null;
+    }
+    
+    static String normalizeIdProof(String idProof) {
+        return idProof == null ? "" : idProof.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+    }
+    
+    /**
+     * Returns the first guest registered with this phone number, preferring
+     * guests with current bookings over those only found in history.
+     */
     public Guest findGuestByPhone(String phone) {
-        return guests.stream()
-            .filter(g -> g.getPhone().equals(phone))
-            .findFirst()
-            .orElse(null);
+        if (phone == null) {
+            return null;
+        }
+        Guest guest = guestsByPhone.get(phone);
+        return guest != null ? guest : history.findGuestByPhone(phone);
+    }
+    
+    public Guest findGuestById(String guestId) {
+        if (guestId == null) {
+            return null;
+        }
+        Guest guest = guestsById.get(guestId);
+        if (guest != null) {
+            return guest;
+        }
+        int number = idNumber(guestId, "G");
+        return number < 0 ? null : history.findGuest(number);
+    }
+    
+    /**
+     * Finds guests by the start of any word of their name, their email or ID
+     * proof, e.g. "sharma", "priya@" or "priya sh". When nothing matches,
+     * near misses of the longest word ("sharmma") are returned instead.
+     * Only guests held in memory are searched, not archived ones.
+     */
+    public List<Guest> searchGuests(String query, int limit) {
+        return guestSearch.search(query, limit);
     }
     
+    /**
+     * All guests, including those only found in history, ordered by ID.
+     */
     public List<Guest> getAllGuests() {
-        return new ArrayList<>(guests);
+        Map<Integer, Guest> all = new TreeMap<>();
+        for (Guest guest : history.allGuests()) {
+            all.put(idNumber(guest.getGuestId(), "G"), guest);
+        }
+        for (Guest guest : guests) {
+            all.put(idNumber(guest.getGuestId(), "G"), guest);
+        }
+        return new ArrayList<>(all.values());
+    }
+    
+    private void registerGuest(Guest guest) {
+        guests.add(guest);
+        indexGuest(guest);
+    }
+    
+    /**
+     * Brings a guest found in history back into the live set when they book again.
+     */
+    private void reviveGuest(Guest guest) {
+        if (!guestsById.containsKey(guest.getGuestId())
+                && history.containsGuest(idNumber(guest.getGuestId(), "G"))) {
+            registerGuest(guest);
+            view.updateAndGet(current -> current.withGuest(guest));
+        }
+    }
+    
+    private void indexGuest(Guest guest) {
+        guest.shareStrings(guestStrings);
+        guestsById.put(guest.getGuestId(), guest);
+        if (guest.getPhone() != null) {
+            guestsByPhone.putIfAbsent(guest.getPhone(), guest);
+        }
+        String proof = normalizeIdProof(guest.getIdProof());
+        if (!proof.isEmpty()) {
+            guestsByIdProof.putIfAbsent(proof, guest);
+        }
+        guestSearch.add(guest);
+        guest.setChangeListener(this::guestChanged);
+    }
+    
+    private void unindexGuest(Guest guest) {
+        guestsById.remove(guest.getGuestId(), guest);
+        if (guest.getPhone() != null) {
+            guestsByPhone.remove(guest.getPhone(), guest);
+        }
+        guestsByIdProof.remove(normalizeIdProof(guest.getIdProof()), guest);
+        guestSearch.remove(guest);
+        guest.setChangeListener(null);
+    }
+    
+    /**
+     * Keeps the phone, ID proof and search indexes in step with edits made
+     * through Guest setters.
+     */
+    private void guestChanged(Guest guest, String field, String oldValue) {
+        if (Guest.FIELD_NAME.equals(field) || Guest.FIELD_ADDRESS.equals(field)) {
+            guest.shareStrings(guestStrings);
+        }
+        if (Guest.FIELD_ID_PROOF.equals(field)) {
+            guestsByIdProof.remove(normalizeIdProof(oldValue), guest);
+            String proof = normalizeIdProof(guest.getIdProof());
+            if (!proof.isEmpty()) {
+                guestsByIdProof.putIfAbsent(proof, guest);
+            }
+        }
+        if (!Guest.FIELD_PHONE.equals(field)) {
+            guestSearch.update(guest, field, oldValue);
+            return;
+        }
+        if (oldValue != null) {
+            guestsByPhone.remove(oldValue, guest);
+        }
+        if (guest.getPhone() != null) {
+            guestsByPhone.putIfAbsent(guest.getPhone(), guest);
+        }
+    }
+    
+    // ==================== PRICING ====================
+    
+    /**
+     * Price of staying in the room for [checkIn, checkOut) at current rates,
+     * before taxes. Bookings keep the price quoted when they were made.
+     */
+    public double quote(Room room, LocalDate checkIn, LocalDate checkOut) {
+        return rateCalendar.quote(room, checkIn, checkOut);
+    }
+    
+    /**
+     * Nightly rates by room type and date; change them to price weekends,
+     * seasons and events. Rules in hotel_rates.txt are applied at startup.
+     */
+    public RateCalendar getRateCalendar() {
+        return rateCalendar;
+    }
+    
+    private void loadRates() {
+        File file = new File(dataDir, RATES_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            rateCalendar.load(file);
+        } catch (IOException e) {
+            System.out.println("Error loading rates: " + e.getMessage());
+        }
     }
     
     // ==================== RESERVATION OPERATIONS ====================
     
+    /**
+     * Books the room for [checkIn, checkOut).
+     * Returns null if any of those nights is already taken, including by a
+     * booking made concurrently from another thread.
+     */
     public Reservation makeReservation(Guest guest, Room room, 
                                         LocalDate checkIn, LocalDate checkOut, double advance) {
-        String reservationId = "RES" + (++reservationCounter);
-        Reservation reservation = new Reservation(reservationId, guest, room, checkIn, checkOut);
+        long start = metrics.start();
+        try {
+            return mutate(room, () -> book(guest, room, checkIn, checkOut, advance));
+        } finally {
+            metrics.record(HotelMetrics.Operation.MAKE_RESERVATION, start);
+        }
+    }
+    
+    /**
+     * Books the room if the nights are free. Caller holds the room's lock.
+     */
+    private Reservation book(Guest guest, Room room, LocalDate checkIn, LocalDate checkOut, double advance) {
+        if (!isRoomAvailable(room, checkIn, checkOut)) {
+            return null;
+        }
+        String reservationId = "RES" + reservationCounter.incrementAndGet();
+        Reservation reservation = new Reservation(reservationId, guest, room, checkIn, checkOut,
+            rateCalendar.quote(room, checkIn, checkOut));
         reservation.setAdvancePaid(advance);
-        room.setAvailable(false);
-        reservations.add(reservation);
-        saveData();
+        calendarFor(room).book(reservation);
+        reviveGuest(guest);
+        registerReservation(reservation);
+        if (!batching) {
+            try {
+                journal.logReservation(reservation);
+            } catch (IOException e) {
+                System.out.println("Error writing journal: " + e.getMessage());
+            }
+        }
+        changeFeed.publish(ReservationEvent.Type.BOOKED, reservation);
         return reservation;
     }
     
+    /**
+     * Looks up a reservation by ID, ignoring case.
+     */
     public Reservation findReservationById(String reservationId) {
-        return reservations.stream()
-            .filter(r -> r.getReservationId().equalsIgnoreCase(reservationId))
-            .findFirst()
-            .orElse(null);
+        if (reservationId == null) {
+            return null;
+        }
+        long start = metrics.start();
+        try {
+            String key = reservationId.trim().toUpperCase(Locale.ROOT);
+            Reservation reservation = reservationsById.get(key);
+            if (reservation != null) {
+                return reservation;
+            }
+            int number = idNumber(key, "RES");
+            return number < 0 ? null : history.findReservation(number);
+        } finally {
+            metrics.record(HotelMetrics.Operation.FIND_RESERVATION, start);
+        }
     }
     
+    /**
+     * Returns the active reservation on a room: the checked-in one if any,
+     * otherwise the earliest confirmed booking.
+     */
     public Reservation findReservationByRoom(int roomNumber) {
-        return reservations.stream()
-            .filter(r -> r.getRoom().getRoomNumber() == roomNumber)
-            .filter(r -> r.getStatus() == Reservation.Status.CONFIRMED || 
-                        r.getStatus() == Reservation.Status.CHECKED_IN)
-            .findFirst()
-            .orElse(null);
+        return activeReservationByRoom.get(roomNumber);
     }
     
+    /**
+     * All reservations, including archived ones, ordered by ID. These are
+     * the live records, copied into a new list; listings should page through
+     * {@link #findReservations} instead.
+     */
     public List<Reservation> getAllReservations() {
-        return new ArrayList<>(reservations);
+        Map<Integer, Reservation> all = new TreeMap<>();
+        for (Reservation reservation : history.allReservations()) {
+            all.put(idNumber(reservation.getReservationId(), "RES"), reservation);
+        }
+        for (Reservation reservation : reservations) {
+            all.put(idNumber(reservation.getReservationId(), "RES"), reservation);
+        }
+        return new ArrayList<>(all.values());
+    }
+    
+    /**
+     * One page of the reservations matching the query, in ID order, from the
+     * current view. Pass null as the cursor for the first page and the
+     * page's {@link ReservationPage#getNextCursor()} for each following one.
+     */
+    public ReservationPage findReservations(ReservationQuery query, String cursor, int pageSize) {
+        return getView().findReservations(query, cursor, pageSize);
     }
     
+    /**
+     * Confirmed and checked-in reservations, ordered by ID, as live records;
+     * reports should iterate {@link #getView()} instead.
+     */
     public List<Reservation> getActiveReservations() {
-        return reservations.stream()
-            .filter(r -> r.getStatus() == Reservation.Status.CONFIRMED || 
-                        r.getStatus() == Reservation.Status.CHECKED_IN)
-            .collect(Collectors.toList());
+        return new ArrayList<>(activeReservations.values());
     }
     
-    public void checkIn(Reservation reservation) {
-        reservation.checkIn();
-        saveData();
+    /**
+     * Checks in a confirmed reservation.
+     * Returns false if it was not in the CONFIRMED state, its check-in date
+     * is still in the future, or another guest is checked in to the room.
+     */
+    public boolean checkIn(Reservation reservation) {
+        return mutate(reservation.getRoom(), () -> {
+            if (checkInRefusal(reservation) != null) {
+                return false;
+            }
+            reservation.checkIn();
+            calendarFor(reservation.getRoom()).checkIn(reservation);
+            activeReservationByRoom.put(reservation.getRoom().getRoomNumber(), reservation);
+            logStatusChange(HotelJournal.CHECK_IN, reservation);
+            publish(reservation);
+            changeFeed.publish(ReservationEvent.Type.CHECKED_IN, reservation);
+            return true;
+        });
     }
     
-    public void checkOut(Reservation reservation) {
-        reservation.checkOut();
-        saveData();
+    /**
+     * Why {@link #checkIn} refuses the reservation at the moment, or null if
+     * it would check it in; for telling the user after it returned false.
+     */
+    public String checkInRefusal(Reservation reservation) {
+        if (reservation.getStatus() != Reservation.Status.CONFIRMED) {
+            return "the reservation is " + reservation.getStatus();
+        }
+        if (reservation.getCheckInDate().isAfter(LocalDate.now())) {
+            return "the stay starts on " + reservation.getCheckInDate();
+        }
+        Reservation occupant = calendarFor(reservation.getRoom()).checkedIn();
+        if (occupant != null) {
+            return "room " + reservation.getRoom().getRoomNumber() + " is still occupied ("
+                + occupant.getReservationId() + " has not checked out)";
+        }
+        return null;
     }
     
-    public void cancelReservation(Reservation reservation) {
-        reservation.cancel();
-        saveData();
+    /**
+     * Checks out a checked-in reservation.
+     * Returns false if the guest was not checked in.
+     */
+    public boolean checkOut(Reservation reservation) {
+        return mutate(reservation.getRoom(), () -> {
+            if (reservation.getStatus() != Reservation.Status.CHECKED_IN) {
+                return false;
+            }
+            reservation.checkOut();
+            releaseBooking(reservation);
+            logStatusChange(HotelJournal.CHECK_OUT, reservation);
+            publish(reservation);
+            changeFeed.publish(ReservationEvent.Type.CHECKED_OUT, reservation);
+            fillFromWaitlist(reservation.getRoom(), reservation.getCheckInDate(), reservation.getCheckOutDate());
+            return true;
+        });
+    }
+    
+    /**
+     * Cancels an active reservation.
+     * Returns false if it was already cancelled or checked out.
+     */
+    public boolean cancelReservation(Reservation reservation) {
+        return mutate(reservation.getRoom(), () -> {
+            if (!isActive(reservation)) {
+                return false;
+            }
+            reservation.cancel();
+            releaseBooking(reservation);
+            logStatusChange(HotelJournal.CANCEL, reservation);
+            publish(reservation);
+            changeFeed.publish(ReservationEvent.Type.CANCELLED, reservation);
+            fillFromWaitlist(reservation.getRoom(), reservation.getCheckInDate(), reservation.getCheckOutDate());
+            return true;
+        });
+    }
+    
+    private void registerReservation(Reservation reservation) {
+        reservations.add(reservation);
+        reservationsById.put(reservation.getReservationId().toUpperCase(Locale.ROOT), reservation);
+        if (isActive(reservation)) {
+            activeReservations.put(idNumber(reservation.getReservationId(), "RES"), reservation);
+            int roomNumber = reservation.getRoom().getRoomNumber();
+            Reservation current = activeReservationByRoom.get(roomNumber);
+            if (current == null || reservation.getStatus() == Reservation.Status.CHECKED_IN
+                    || (current.getStatus() != Reservation.Status.CHECKED_IN
+                    && reservation.getCheckInDate().isBefore(current.getCheckInDate()))) {
+                activeReservationByRoom.put(roomNumber, reservation);
+            }
+        }
+        publish(reservation);
+    }
+    
+    /**
+     * Frees the reservation's nights and re-points the room's active entry.
+     * The room stays occupied while another guest is still checked in to it.
+     */
+    private void releaseBooking(Reservation reservation) {
+        Room room = reservation.getRoom();
+        RoomCalendar calendar = calendarFor(room);
+        calendar.release(reservation);
+        activeReservations.remove(idNumber(reservation.getReservationId(), "RES"), reservation);
+        Reservation occupant = calendar.checkedIn();
+        if (occupant != null) {
+            room.setAvailable(false);
+        }
+        if (activeReservationByRoom.get(room.getRoomNumber()) == reservation) {
+            Reservation next = occupant != null ? occupant : calendar.firstBooking();
+            if (next == null) {
+                activeReservationByRoom.remove(room.getRoomNumber());
+            } else {
+                activeReservationByRoom.put(room.getRoomNumber(), next);
+            }
+        }
+    }
+    
+    private static boolean isActive(Reservation reservation) {
+        return reservation.getStatus() == Reservation.Status.CONFIRMED ||
+               reservation.getStatus() == Reservation.Status.CHECKED_IN;
+    }
+    
+    /**
+     * Numeric part of an ID such as "G101" or "RES1001", or -1 if malformed.
+     */
+    static int idNumber(String id, String prefix) {
+        if (!id.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(id.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    private void logStatusChange(byte op, Reservation reservation) {
+        if (batching) {
+            return;
+        }
+        try {
+            journal.logStatusChange(op, reservation.getReservationId());
+        } catch (IOException e) {
+            System.out.println("Error writing journal: " + e.getMessage());
+        }
+    }
+    
+    // ==================== CONCURRENCY ====================
+    
+    /**
+     * Runs a change under the room's lock stripe (if any) and the shared side
+     * of the persistence lock, then compacts the journal if it has grown large.
+     * The journal record is written inside the lock so its order matches the
+     * order in which changes to the same room were applied.
+     * <p>
+     * With group commit on, the caller then waits, holding no locks, until
+     * the batch carrying its journal record has been fsynced. If that batch
+     * cannot be written, the change stays applied in memory but the caller
+     * gets an {@link java.io.UncheckedIOException} rather than a success.
+     */
+    private <T> T mutate(Room room, Supplier<T> change) {
+        ReentrantLock roomLock = room == null ? null : lockFor(room);
+        long logged;
+        T result;
+        persistenceLock.readLock().lock();
+        try {
+            if (roomLock != null) {
+                roomLock.lock();
+            }
+            try {
+                result = change.get();
+                // Covers this change's record; any earlier ones are already queued with it
+                logged = journal.getSequence();
+            } finally {
+                if (roomLock != null) {
+                    roomLock.unlock();
+                }
+            }
+        } finally {
+            persistenceLock.readLock().unlock();
+            maybeCompact();
+        }
+        journal.awaitDurable(logged);
+        return result;
+    }
+    
+    public HotelMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Switches the journal to group commit: concurrent changes share one
+     * fsync per batch of up to {@code maxBatchSize} records, written at most
+     * {@code windowMillis} after the first record of the batch.
+     */
+    public void enableGroupCommit(long windowMillis, int maxBatchSize) {
+        journal.startGroupCommit(windowMillis, maxBatchSize);
+    }
+    
+    /**
+     * Applies a batch of changes as one persistence commit. Other changes
+     * wait until the batch is done; journal records are skipped and a single
+     * snapshot is written at the end, even if the batch fails part way.
+     */
+    <T> T runBatch(Supplier<T> work) {
+        persistenceLock.writeLock().lock();
+        try {
+            batching = true;
+            try {
+                return work.get();
+            } finally {
+                batching = false;
+                saveData();
+            }
+        } finally {
+            persistenceLock.writeLock().unlock();
+        }
+    }
+    
+    private ReentrantLock lockFor(Room room) {
+        return roomLocks[Math.floorMod(room.getRoomNumber(), LOCK_STRIPES)];
+    }
+    
+    // ==================== WAITLIST ====================
+    
+    /**
+     * Puts the guest on the waitlist for any room of the type for the nights
+     * in [checkIn, checkOut). If such a room is free already it is booked at
+     * once; otherwise the request is booked automatically when a cancellation
+     * or check-out frees nights that fit. Returns null for an empty range or
+     * one starting in the past.
+     * <p>
+     * The waitlist is held in memory only; the bookings it makes are
+     * journaled like any other.
+     */
+    public WaitlistRequest joinWaitlist(Guest guest, Room.RoomType type, LocalDate checkIn,
+                                        LocalDate checkOut, double advance) {
+        if (!checkOut.isAfter(checkIn) || checkIn.isBefore(LocalDate.now())) {
+            return null;
+        }
+        WaitlistRequest request = new WaitlistRequest(waitlistCounter.incrementAndGet(), guest, type,
+            checkIn, checkOut, advance);
+        waitlist.add(request);
+        // Rooms free now, or freed while the request was being added, are
+        // matched like a cancellation; an older request may win the room
+        for (Room room : findRooms(type, null, null, checkIn, checkOut)) {
+            if (request.getStatus() != WaitlistRequest.Status.WAITING) {
+                break;
+            }
+            mutate(room, () -> {
+                fillFromWaitlist(room, checkIn, checkOut);
+                return null;
+            });
+        }
+        return request;
+    }
+    
+    /**
+     * Takes a waiting request off the waitlist. Returns false if it was
+     * already filled, withdrawn or expired.
+     */
+    public boolean leaveWaitlist(WaitlistRequest request) {
+        if (!waitlist.remove(request)) {
+            return false;
+        }
+        request.setStatus(WaitlistRequest.Status.WITHDRAWN);
+        return true;
+    }
+    
+    /**
+     * Requests still waiting, oldest first.
+     */
+    public List<WaitlistRequest> getWaitlist() {
+        return waitlist.requests(LocalDate.now().toEpochDay());
+    }
+    
+    public int getWaitlistSize() {
+        return waitlist.size();
+    }
+    
+    /**
+     * Books waiting requests into the room's nights in [from, to) that have
+     * just come free, best match first, until no request fits what is left.
+     * Caller holds the room's lock.
+     */
+    private void fillFromWaitlist(Room room, LocalDate from, LocalDate to) {
+        if (waitlist.size() == 0) {
+            return;
+        }
+        long today = LocalDate.now().toEpochDay();
+        RoomCalendar calendar = calendarFor(room);
+        Deque<long[]> ranges = new ArrayDeque<>();
+        ranges.push(new long[] {Math.max(from.toEpochDay(), today), to.toEpochDay()});
+        while (!ranges.isEmpty()) {
+            long[] range = ranges.pop();
+            if (range[0] >= range[1] || !calendar.isFree(range[0], range[1])) {
+                continue;
+            }
+            WaitlistRequest request = waitlist.take(room.getRoomType(), today,
+                calendar.freeFrom(range[0]), calendar.freeUntil(range[1]), range[0], range[1]);
+            if (request == null) {
+                continue;
+            }
+            Reservation reservation = book(request.getGuest(), room, request.getCheckInDate(),
+                request.getCheckOutDate(), request.getAdvance());
+            if (reservation == null) {
+                waitlist.add(request);
+                continue;
+            }
+            request.filled(reservation);
+            // Whatever the booking left of the freed nights may suit another request
+            ranges.push(new long[] {range[0], reservation.getCheckInDate().toEpochDay()});
+            ranges.push(new long[] {reservation.getCheckOutDate().toEpochDay(), range[1]});
+        }
+    }
+    
+    // ==================== READ VIEWS ====================
+    
+    /**
+     * The current point-in-time view of rooms and reservations, in O(1).
+     * Reports read it without locking and without seeing later changes;
+     * see {@link HotelView}.
+     */
+    public HotelView getView() {
+        return view.get();
+    }
+    
+    /**
+     * Publishes a version with the reservation's new state. Called under the
+     * room's lock right after the change, so the version holds all of it.
+     */
+    private void publish(Reservation reservation) {
+        view.updateAndGet(current -> current.with(reservation));
+    }
+    
+    /**
+     * Publishes a version built from scratch, after changes to many records
+     * at once (loading, archiving, merging guests). Callers hold the
+     * persistence write lock or run before the hotel is shared.
+     */
+    private void rebuildView() {
+        VersionedArray.Builder<Boolean> occupied = new VersionedArray.Builder<>();
+        for (int slot = 0; slot < roomStore.size(); slot++) {
+            if (!roomStore.hasFlag(slot, RoomStore.FLAG_AVAILABLE)) {
+                occupied.set(slot, Boolean.TRUE);
+            }
+        }
+        VersionedArray.Builder<Reservation> all = new VersionedArray.Builder<>();
+        VersionedArray.Builder<Reservation> active = new VersionedArray.Builder<>();
+        for (Reservation reservation : reservations) {
+            int number = idNumber(reservation.getReservationId(), "RES");
+            if (number < 0) {
+                continue;
+            }
+            Reservation frozen = reservation.copy();
+            all.set(number, frozen);
+            if (isActive(frozen)) {
+                active.set(number, frozen);
+            }
+        }
+        VersionedArray.Builder<Guest> live = new VersionedArray.Builder<>();
+        for (Guest guest : guests) {
+            int number = idNumber(guest.getGuestId(), "G");
+            if (number >= 0) {
+                live.set(number, guest);
+            }
+        }
+        view.set(new HotelView(view.get().getVersion() + 1, roomStore, roomStore.size(),
+            occupied.build(), all.build(), active.build(), live.build(), history));
+    }
+    
+    // ==================== CHANGE FEED ====================
+    
+    /**
+     * Bookings, check-ins, check-outs and cancellations from now on, so other
+     * systems can follow changes instead of re-reading every reservation.
+     * Each subscriber is sent events on a feed thread as it requests them.
+     * The last -Dhotel.feed.capacity events (default 4096) are retained; a
+     * subscriber further behind than that is failed and should re-read the
+     * current state.
+     */
+    public Flow.Publisher<ReservationEvent> getChangeFeed() {
+        return changeFeed;
+    }
+    
+    /**
+     * The change feed after the event a resume token was taken from, replaying
+     * retained events first: pass {@link ReservationEvent#getResumeToken()} of
+     * the last event processed, or {@link #getChangeToken()}. Sequence numbers
+     * start again at 1 each time the hotel is loaded, so a token from before
+     * that fails the subscriber with an IllegalStateException; re-read the
+     * current state and subscribe afresh.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public Flow.Publisher<ReservationEvent> getChangeFeed(String resumeToken) {
+        return changeFeed.from(resumeToken);
+    }
+    
+    /**
+     * Sequence number of the last event published, or 0 if none yet.
+     */
+    public long getChangeSequence() {
+        return changeFeed.lastSequence();
+    }
+    
+    /**
+     * Resume token for the current end of the change feed, e.g. to take
+     * along with a read of the current state.
+     */
+    public String getChangeToken() {
+        return changeFeed.currentToken();
     }
     
     // ==================== DATA PERSISTENCE ====================
     
-    @SuppressWarnings("unchecked")
+    /**
+     * Loads the last snapshot and replays the journal records written after it,
+     * then publishes the loaded state as the current view. Only then may it
+     * write a snapshot, whether to finish a migration or to compact a long
+     * journal, since checkpoints are captured from the view.
+     */
     private boolean loadData() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(DATA_FILE))) {
-            rooms = (List<Room>) ois.readObject();
-            guests = (List<Guest>) ois.readObject();
-            reservations = (List<Reservation>) ois.readObject();
-            reservationCounter = ois.readInt();
-            guestCounter = ois.readInt();
-            return true;
-        } catch (FileNotFoundException e) {
-            return false;
-        } catch (IOException | ClassNotFoundException e) {
+        HotelCodec.Snapshot snapshot;
+        try {
+            snapshot = readSnapshot();
+        } catch (IOException e) {
             System.out.println("Error loading data: " + e.getMessage());
             return false;
         }
+        if (snapshot == null) {
+            return false;
+        }
+        reservationCounter.set(snapshot.reservationCounter);
+        guestCounter.set(snapshot.guestCounter);
+        journalSequence = snapshot.journalSequence;
+        File archiveFile = new File(dataDir, ARCHIVE_FILE);
+        if (archiveFile.exists()) {
+            try {
+                history = HotelCodec.openArchive(archiveFile, new HistoryResolver());
+            } catch (IOException e) {
+                System.out.println("Error loading archive: " + e.getMessage());
+            }
+        }
+        rebuildIndexes(snapshot.rooms, snapshot.guests, snapshot.reservations);
+        
+        // Older snapshots carry their closed records inline; move them to the archive
+        boolean migrated = (snapshot.history.guestCount() > 0 || snapshot.history.reservationCount() > 0)
+            && rewriteArchive(Collections.emptyList(), Collections.emptyList(),
+                Collections.emptySet(), snapshot.history);
+        
+        try {
+            journal.replay(journalSequence, new JournalReplayer());
+        } catch (IOException e) {
+            System.out.println("Error replaying journal: " + e.getMessage());
+        }
+        // Checkpoints capture the view, so it must hold what was just loaded
+        rebuildView();
+        if (migrated) {
+            saveData();
+        } else {
+            maybeCompact();
+        }
+        return true;
     }
     
+    /**
+     * Reads the binary snapshot, migrating a Java-serialized file from older
+     * versions on first start. Returns null when there is no saved data.
+     */
+    private HotelCodec.Snapshot readSnapshot() throws IOException {
+        File dataFile = new File(dataDir, DATA_FILE);
+        if (dataFile.exists()) {
+            return HotelCodec.read(dataFile, new HistoryResolver());
+        }
+        File legacyFile = new File(dataDir, LEGACY_DATA_FILE);
+        if (!legacyFile.exists()) {
+            return null;
+        }
+        
+        HotelCodec.Snapshot snapshot = HotelCodec.readLegacy(legacyFile);
+        HotelCodec.write(snapshot, dataFile);
+        if (!legacyFile.renameTo(new File(dataDir, LEGACY_DATA_FILE + ".migrated"))) {
+            System.out.println("Warning: could not rename " + LEGACY_DATA_FILE);
+        }
+        System.out.println("Migrated " + LEGACY_DATA_FILE + " to " + DATA_FILE);
+        return snapshot;
+    }
+    
+    /**
+     * Rebuilds the hash indexes and occupancy calendars from the loaded lists.
+     * Room availability is re-derived from check-ins, since older data files
+     * also marked rooms unavailable for future bookings.
+     */
+    private void rebuildIndexes(List<Room> loadedRooms, List<Guest> loadedGuests,
+                                List<Reservation> loadedReservations) {
+        for (Room room : loadedRooms) {
+            room.setAvailable(true);
+            addRoom(room);
+        }
+        for (Guest guest : loadedGuests) {
+            registerGuest(guest);
+        }
+        for (Reservation reservation : loadedReservations) {
+            if (isActive(reservation)) {
+                calendarFor(reservation.getRoom()).book(reservation);
+            }
+            if (reservation.getStatus() == Reservation.Status.CHECKED_IN) {
+                reservation.getRoom().setAvailable(false);
+            }
+            registerReservation(reservation);
+        }
+    }
+    
+    /**
+     * Writes a full snapshot and waits until it is on disk. Holds the
+     * persistence write lock only while the state is captured; see
+     * {@link #checkpoint}.
+     */
     private void saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(rooms);
-            oos.writeObject(guests);
-            oos.writeObject(reservations);
-            oos.writeInt(reservationCounter);
-            oos.writeInt(guestCounter);
+        long start = metrics.start();
+        try {
+            Future<Boolean> written = checkpoint(archiveDue());
+            if (written != null) {
+                written.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.out.println("Error saving data: " + e.getCause().getMessage());
+        } finally {
+            metrics.record(HotelMetrics.Operation.SAVE_DATA, start);
+        }
+    }
+    
+    /**
+     * Captures the current state and hands it to the checkpoint thread,
+     * which writes it to a temp file and renames it over the data file.
+     * Returns the pending write, or null if nothing could be captured.
+     * <p>
+     * The capture holds the persistence write lock, so in-flight changes
+     * finish first, but only to rotate the journal, so that changes made
+     * while the snapshot is written are kept in a new file, and to take the
+     * current {@link HotelView}, which already holds frozen copies of the
+     * reservations and shares its structure with later versions. The records
+     * are gathered and encoded on the checkpoint thread. Closed reservations
+     * that are due go to the archive first, so the snapshot holds only what
+     * is still in memory; pass {@link #archiveDue()}, worked out before
+     * taking the lock.
+     */
+    private Future<Boolean> checkpoint(boolean archive) {
+        persistenceLock.writeLock().lock();
+        try {
+            if (archive) {
+                archiveClosed(false);
+            }
+            try {
+                journalSequence = journal.rotate();
+            } catch (IOException e) {
+                System.out.println("Error rotating journal: " + e.getMessage());
+                return null;
+            }
+            // No change is in flight, so this version matches the journal up to the rotation
+            HotelView captured = view.get();
+            int reservationCount = reservationCounter.get();
+            int guestCount = guestCounter.get();
+            long sequence = journalSequence;
+            // Rooms are fixed once the hotel is set up, so the checkpoint thread reads them itself
+            return checkpointer.submit(() -> writeSnapshot(new HotelCodec.Snapshot(roomStore.views(),
+                new ArrayList<>(captured.liveGuests()), new ArrayList<>(captured.liveReservations()),
+                reservationCount, guestCount, sequence)));
+        } finally {
+            persistenceLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Runs on the checkpoint thread. Loaders never see a partial file: the
+     * snapshot is fsynced under a temp name and then renamed over the old
+     * one. Journal segments it covers are deleted only after that.
+     */
+    private boolean writeSnapshot(HotelCodec.Snapshot snapshot) {
+        File dataFile = new File(dataDir, DATA_FILE);
+        File tempFile = new File(dataDir, DATA_FILE + ".tmp");
+        try {
+            HotelCodec.write(snapshot, tempFile);
+            Files.move(tempFile.toPath(), dataFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             System.out.println("Error saving data: " + e.getMessage());
+            return false;
+        }
+        
+        try {
+            journal.discardThrough(snapshot.journalSequence);
+        } catch (IOException e) {
+            System.out.println("Error trimming journal: " + e.getMessage());
+        }
+        return true;
+    }
+    
+    // ==================== DUPLICATE GUESTS ====================
+    
+    /**
+     * Merges guest records that belong to one person: records with the same
+     * ID proof, and records sharing a phone number where at most one ID proof
+     * is involved. The record kept is the lowest-numbered one with the ID
+     * proof (or simply the lowest-numbered); bookings, archived ones included,
+     * move to it and the other records are deleted. Writes a fresh snapshot.
+     * Returns how many guest records were removed.
+     */
+    public int mergeDuplicateGuests() {
+        persistenceLock.writeLock().lock();
+        try {
+            Map<String, Guest> keptFor = findDuplicateGuests();
+            if (keptFor.isEmpty()) {
+                return 0;
+            }
+            
+            for (Reservation reservation : reservations) {
+                Guest kept = keptFor.get(reservation.getGuest().getGuestId());
+                if (kept != null) {
+                    reviveGuest(kept);
+                    reservation.setGuest(kept);
+                }
+            }
+            List<Reservation> movedArchived = new ArrayList<>();
+            for (Reservation reservation : history.allReservations()) {
+                Guest kept = keptFor.get(reservation.getGuest().getGuestId());
+                if (kept != null) {
+                    reservation.setGuest(kept);
+                    movedArchived.add(reservation);
+                }
+            }
+            
+            Set<Integer> droppedArchived = new HashSet<>();
+            List<Guest> dropped = new ArrayList<>();
+            for (String guestId : keptFor.keySet()) {
+                Guest guest = guestsById.get(guestId);
+                if (guest != null) {
+                    dropped.add(guest);
+                }
+                int number = idNumber(guestId, "G");
+                if (history.containsGuest(number)) {
+                    droppedArchived.add(number);
+                }
+            }
+            guests.removeAll(new HashSet<>(dropped));
+            for (Guest guest : dropped) {
+                unindexGuest(guest);
+            }
+            // Let the kept records take over the phone and ID proof entries
+            for (Guest guest : guests) {
+                indexGuest(guest);
+            }
+            if (!droppedArchived.isEmpty() || !movedArchived.isEmpty()) {
+                rewriteArchive(Collections.emptyList(), movedArchived, droppedArchived);
+            }
+            rebuildView();
+            saveData();
+            return keptFor.size();
+        } finally {
+            persistenceLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Maps the ID of every duplicate guest record to the record kept for it.
+     */
+    private Map<String, Guest> findDuplicateGuests() {
+        List<Guest> all = getAllGuests();
+        Map<String, Guest> byIdProof = new HashMap<>();
+        Map<String, List<Guest>> byPhone = new HashMap<>();
+        for (Guest guest : all) {
+            String proof = normalizeIdProof(guest.getIdProof());
+            if (!proof.isEmpty()) {
+                byIdProof.putIfAbsent(proof, guest);
+            }
+            String phone = guest.getPhone() == null ? "" : guest.getPhone().trim();
+            if (!phone.isEmpty()) {
+                byPhone.computeIfAbsent(phone, k -> new ArrayList<>()).add(guest);
+            }
+        }
+        
+        Map<String, Guest> keptFor = new HashMap<>();
+        for (Guest guest : all) {
+            Guest kept = byIdProof.get(normalizeIdProof(guest.getIdProof()));
+            if (kept != null && kept != guest) {
+                keptFor.put(guest.getGuestId(), kept);
+            }
+        }
+        for (List<Guest> samePhone : byPhone.values()) {
+            Set<String> proofs = new HashSet<>();
+            for (Guest guest : samePhone) {
+                String proof = normalizeIdProof(guest.getIdProof());
+                if (!proof.isEmpty()) {
+                    proofs.add(proof);
+                }
+            }
+            if (samePhone.size() < 2 || proofs.size() > 1) {
+                continue; // one guest, or relatives sharing a number
+            }
+            Guest kept = proofs.isEmpty() ? samePhone.get(0) : byIdProof.get(proofs.iterator().next());
+            for (Guest guest : samePhone) {
+                if (guest != kept && normalizeIdProof(guest.getIdProof()).isEmpty()) {
+                    keptFor.put(guest.getGuestId(), kept);
+                }
+            }
+        }
+        return keptFor;
+    }
+    
+    // ==================== ARCHIVE ====================
+    
+    /**
+     * True if enough closed reservations are due for {@link #archiveClosed}
+     * to archive them. Reads the current view, so it takes no lock and can
+     * run before a checkpoint locks anything.
+     */
+    private boolean archiveDue() {
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        Collection<Reservation> inMemory = view.get().liveReservations();
+        int due = 0;
+        for (Reservation reservation : inMemory) {
+            if (!isActive(reservation) && !reservation.getCheckOutDate().isAfter(cutoff)) {
+                due++;
+            }
+        }
+        return due >= ARCHIVE_BATCH || due > 0 && due * 2 >= inMemory.size();
+    }
+    
+    /**
+     * Moves closed reservations whose stay ended more than archiveAfterDays
+     * ago, and guests left with nothing but archived stays, to the archive
+     * and drops them from memory. A cancelled booking counts from the day its
+     * stay would have ended.
+     * <p>
+     * Rewriting the archive copies all of it, so unless forced this waits
+     * until ARCHIVE_BATCH reservations are due or they make up half of those
+     * in memory. Returns how many reservations were archived.
+     */
+    private int archiveClosed(boolean force) {
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        List<Reservation> due = new ArrayList<>();
+        Set<String> hotGuests = new HashSet<>();
+        Set<String> archivedGuests = new HashSet<>();
+        for (Reservation reservation : reservations) {
+            String guestId = reservation.getGuest().getGuestId();
+            if (!isActive(reservation) && !reservation.getCheckOutDate().isAfter(cutoff)) {
+                due.add(reservation);
+                archivedGuests.add(guestId);
+            } else {
+                hotGuests.add(guestId);
+            }
+        }
+        if (due.isEmpty() || (!force && due.size() < ARCHIVE_BATCH
+                && due.size() * 2 < reservations.size())) {
+            return 0;
+        }
+        
+        List<Guest> retiredGuests = new ArrayList<>();
+        for (Guest guest : guests) {
+            String guestId = guest.getGuestId();
+            if (!hotGuests.contains(guestId) && (archivedGuests.contains(guestId)
+                    || history.containsGuest(idNumber(guestId, "G")))) {
+                retiredGuests.add(guest);
+            }
+        }
+        if (!rewriteArchive(retiredGuests, due, Collections.emptySet())) {
+            return 0;
+        }
+        evictHistory(due, retiredGuests);
+        rebuildView();
+        return due.size();
+    }
+    
+    /**
+     * Writes a new archive holding the given records plus everything already
+     * archived (and in {@code legacy}, if any) except the dropped guests, then
+     * switches lookups to it. The old mapping stays valid for readers until then.
+     */
+    private boolean rewriteArchive(List<Guest> newGuests, List<Reservation> newReservations,
+                                   Set<Integer> droppedGuests, SnapshotHistory... legacy) {
+        List<SnapshotHistory> previous = new ArrayList<>();
+        previous.add(history);
+        previous.addAll(Arrays.asList(legacy));
+        File archiveFile = new File(dataDir, ARCHIVE_FILE);
+        File tempFile = new File(dataDir, ARCHIVE_FILE + ".tmp");
+        try {
+            HotelCodec.writeArchive(tempFile, newGuests, newReservations, droppedGuests, previous);
+            Files.move(tempFile.toPath(), archiveFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            history = HotelCodec.openArchive(archiveFile, new HistoryResolver());
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error writing archive: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Drops records that now live in the archive from memory.
+     */
+    private void evictHistory(List<Reservation> closedReservations, List<Guest> retiredGuests) {
+        reservations.removeAll(new HashSet<>(closedReservations));
+        for (Reservation reservation : closedReservations) {
+            reservationsById.remove(reservation.getReservationId().toUpperCase(Locale.ROOT), reservation);
+        }
+        guests.removeAll(new HashSet<>(retiredGuests));
+        for (Guest guest : retiredGuests) {
+            unindexGuest(guest);
+        }
+    }
+    
+    /**
+     * Archives every closed reservation past the archive age now, without
+     * waiting for a full batch, and writes a fresh snapshot.
+     * Returns how many reservations were archived.
+     */
+    public int archive() {
+        persistenceLock.writeLock().lock();
+        try {
+            int archived = archiveClosed(true);
+            saveData();
+            return archived;
+        } finally {
+            persistenceLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Days a closed reservation stays in memory after its check-out date
+     * before it may be archived. Defaults to -Dhotel.archive.afterDays, or 30.
+     */
+    public int getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
+    
+    public void setArchiveAfterDays(int days) {
+        this.archiveAfterDays = Math.max(0, days);
+    }
+    
+    /**
+     * Folds the journal back into a fresh snapshot and waits for it.
+     */
+    public void compact() {
+        saveData();
+    }
+    
+    /**
+     * Starts a background checkpoint once the journal has grown large.
+     * The caller only waits for the capture, not for the disk write.
+     */
+    private void maybeCompact() {
+        if (journal.getRecordCount() < COMPACT_THRESHOLD || isCheckpointing()) {
+            return;
+        }
+        boolean archive = archiveDue();
+        persistenceLock.writeLock().lock();
+        try {
+            // Another writer may have compacted while we waited for the lock
+            if (journal.getRecordCount() >= COMPACT_THRESHOLD && !isCheckpointing()) {
+                backgroundCheckpoint = checkpoint(archive);
+            }
+        } finally {
+            persistenceLock.writeLock().unlock();
+        }
+    }
+    
+    private boolean isCheckpointing() {
+        Future<Boolean> last = backgroundCheckpoint;
+        return last != null && !last.isDone();
+    }
+    
+    /**
+     * Re-applies journal records on top of the loaded snapshot.
+     */
+    private class JournalReplayer implements HotelJournal.Handler {
+        @Override
+        public void guestAdded(String guestId, String name, String phone, String email,
+                               String idProof, String address) {
+            if (findGuestById(guestId) != null) {
+                return;
+            }
+            registerGuest(new Guest(guestId, name, phone, email, idProof, address));
+            guestCounter.accumulateAndGet(Integer.parseInt(guestId.substring(1)), Math::max);
+        }
+        
+        @Override
+        public void reservationMade(String reservationId, String guestId, int roomNumber,
+                                    LocalDate checkIn, LocalDate checkOut, LocalDate bookingDate,
+                                    double advance, double totalAmount) {
+            if (findReservationById(reservationId) != null) {
+                return;
+            }
+            Guest guest = findGuestById(guestId);
+            Room room = getRoomByNumber(roomNumber);
+            if (guest == null || room == null) {
+                System.out.println("Skipping journal record for " + reservationId);
+                return;
+            }
+            Reservation reservation = Double.isNaN(totalAmount)
+                ? new Reservation(reservationId, guest, room, checkIn, checkOut)
+                : new Reservation(reservationId, guest, room, checkIn, checkOut, totalAmount);
+            reservation.setBookingDate(bookingDate);
+            reservation.setAdvancePaid(advance);
+            calendarFor(room).book(reservation);
+            reviveGuest(guest);
+            registerReservation(reservation);
+            reservationCounter.accumulateAndGet(
+                Integer.parseInt(reservationId.substring(3)), Math::max);
+        }
+        
+        @Override
+        public void statusChanged(byte op, String reservationId) {
+            Reservation reservation = findReservationById(reservationId);
+            if (reservation == null) {
+                return;
+            }
+            switch (op) {
+                case HotelJournal.CHECK_IN:
+                    reservation.checkIn();
+                    calendarFor(reservation.getRoom()).checkIn(reservation);
+                    activeReservationByRoom.put(reservation.getRoom().getRoomNumber(), reservation);
+                    break;
+                case HotelJournal.CHECK_OUT:
+                    reservation.checkOut();
+                    releaseBooking(reservation);
+                    break;
+                case HotelJournal.CANCEL:
+                    reservation.cancel();
+                    releaseBooking(reservation);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Resolves references from archived reservations, whether the guest is
+     * live again or still archived.
+     */
+    private class HistoryResolver implements SnapshotHistory.Resolver {
+        @Override
+        public Guest guest(int guestNumber) {
+            return findGuestById("G" + guestNumber);
+        }
+        
+        @Override
+        public Room room(int roomNumber) {
+            return getRoomByNumber(roomNumber);
         }
     }
     
     // ==================== REPORTS ====================
     
     public void printRoomSummary() {
-        int total = rooms.size();
-        long available = rooms.stream().filter(Room::isAvailable).count();
-        long occupied = total - available;
+        int total = getRoomCount();
+        int available = getAvailableRoomCount();
+        int occupied = total - available;
         
         System.out.println("\n╔════════════════════════════════════════╗");
         System.out.println("║           ROOM SUMMARY                 ║");
@@ -204,12 +1590,33 @@ public class Hotel {
         System.out.println("╠════════════════════════════════════════╣");
         
         for (Room.RoomType type : Room.RoomType.values()) {
-            long typeTotal = rooms.stream().filter(r -> r.getRoomType() == type).count();
-            long typeAvailable = rooms.stream()
-                .filter(r -> r.getRoomType() == type && r.isAvailable())
-                .count();
             System.out.printf("║ %-15s : %d/%d available        ║\n", 
-                type.getDisplayName(), typeAvailable, typeTotal);
+                type.getDisplayName(), getAvailableRoomCount(type), getRoomCount(type));
+        }
+        System.out.println("╚════════════════════════════════════════╝");
+    }
+    
+    /**
+     * Prints how many journal records each group commit wrote per fsync.
+     */
+    public void printCommitStats() {
+        HotelJournal.BatchStats stats = journal.getBatchStats();
+        System.out.println("\n╔════════════════════════════════════════╗");
+        System.out.println("║           GROUP COMMIT                 ║");
+        System.out.println("╠════════════════════════════════════════╣");
+        System.out.printf("║ Batches         : %-20d ║\n", stats.getBatches());
+        System.out.printf("║ Records         : %-20d ║\n", stats.getRecords());
+        System.out.printf("║ Average batch   : %-20.1f ║\n", stats.getAverage());
+        System.out.printf("║ Largest batch   : %-20d ║\n", stats.getLargest());
+        System.out.println("╠════════════════════════════════════════╣");
+        long[] histogram = stats.getHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0) {
+                String label = i == 0 ? "1 record"
+                    : i == histogram.length - 1 ? (1 << i) + "+ records"
+                    : (1 << i) + "-" + ((1 << (i + 1)) - 1) + " records";
+                System.out.printf("║ %-15s : %-20d ║\n", label, histogram[i]);
+            }
         }
         System.out.println("╚════════════════════════════════════════╝");
     }
@@ -1,9 +1,12 @@
 package hotel;
 
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
 /**
@@ -13,9 +16,32 @@ public class HotelApp {
     private static Hotel hotel;
     private static Scanner scanner;
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final int DEFAULT_PORT = 8080;
+    private static final long DEFAULT_COMMIT_WINDOW_MILLIS = 2;
+    private static final int DEFAULT_COMMIT_BATCH_SIZE = 256;
+    private static final int PAGE_SIZE = 20;
     
     public static void main(String[] args) {
         hotel = new Hotel("Grand Royal Hotel");
+        hotel.getMetrics().registerMBeans(hotel.getHotelName());
+        
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--import")) {
+            runImport(new File(args[1]));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--batch")) {
+            runBatch(args[1]);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--merge-guests")) {
+            System.out.println("Merged " + hotel.mergeDuplicateGuests() + " duplicate guest records.");
+            return;
+        }
+        
         scanner = new Scanner(System.in);
         
         printWelcome();
@@ -35,6 +61,8 @@ public class HotelApp {
                 case 7: cancelReservation(); break;
                 case 8: generateBill(); break;
                 case 9: hotel.printRoomSummary(); break;
+                case 10: hotel.getMetrics().printSummary(); break;
+                case 11: searchGuests(); break;
                 case 0: 
                     running = false;
                     printGoodbye();
@@ -47,6 +75,53 @@ public class HotelApp {
         scanner.close();
     }
     
+    /**
+     * Serves the hotel over HTTP until the process is stopped.
+     * Journal writes use group commit, tuned with the system properties
+     * hotel.commit.windowMillis and hotel.commit.batchSize.
+     */
+    private static void runServer(int port) {
+        hotel.enableGroupCommit(
+            Long.getLong("hotel.commit.windowMillis", DEFAULT_COMMIT_WINDOW_MILLIS),
+            Integer.getInteger("hotel.commit.batchSize", DEFAULT_COMMIT_BATCH_SIZE));
+        HotelServer server;
+        try {
+            server = new HotelServer(hotel, port);
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            hotel.compact();
+            hotel.printCommitStats();
+        }));
+        server.start();
+        System.out.println("🏨 " + hotel.getHotelName() + " API listening on port " + server.getPort());
+    }
+    
+    /**
+     * Imports a CSV or NDJSON file of guests and bookings, then exits.
+     */
+    private static void runImport(File file) {
+        try {
+            new HotelImporter(hotel).importFile(file).print();
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error importing " + file + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Runs a command script (or standard input for "-") without the menu, then exits.
+     */
+    private static void runBatch(String source) {
+        try {
+            new HotelBatch(hotel).run(source);
+        } catch (IOException e) {
+            System.out.println("Error running batch " + source + ": " + e.getMessage());
+        }
+    }
+    
     private static void printWelcome() {
         System.out.println("\n");
         System.out.println("╔══════════════════════════════════════════════════════════╗");
@@ -78,6 +153,8 @@ public class HotelApp {
         System.out.println("║  7. Cancel Reservation                                   ║");
         System.out.println("║  8. Generate Bill                                        ║");
         System.out.println("║  9. Room Summary                                         ║");
+        System.out.println("║ 10. Performance Metrics                                  ║");
+        System.out.println("║ 11. Search Guests                                        ║");
         System.out.println("║  0. Exit                                                 ║");
         System.out.println("╚══════════════════════════════════════════════════════════╝");
     }
@@ -98,7 +175,7 @@ public class HotelApp {
         
         switch (choice) {
             case 1:
-                printRoomList(hotel.getAllRooms(), "ALL ROOMS");
+                printRoomList(hotel.getView().getRooms(), "ALL ROOMS");
                 break;
             case 2:
                 printRoomList(hotel.getAvailableRooms(), "AVAILABLE ROOMS");
@@ -114,6 +191,15 @@ public class HotelApp {
     }
     
     private static void viewRoomsByType() {
+        Room.RoomType type = readRoomType();
+        if (type == null) {
+            return;
+        }
+        
+        printRoomList(hotel.getAvailableRoomsByType(type), type.getDisplayName() + " ROOMS");
+    }
+    
+    private static Room.RoomType readRoomType() {
         System.out.println("\nSelect Room Type:");
         System.out.println("1. Single (₹2000/night)");
         System.out.println("2. Double (₹3500/night)");
@@ -130,10 +216,9 @@ public class HotelApp {
             case 4: type = Room.RoomType.SUITE; break;
             default:
                 System.out.println("❌ Invalid choice!");
-                return;
+                return null;
         }
-        
-        printRoomList(hotel.getAvailableRoomsByType(type), type.getDisplayName() + " ROOMS");
+        return type;
     }
     
     private static void printRoomList(List<Room> rooms, String title) {
@@ -153,49 +238,60 @@ public class HotelApp {
     
     // ==================== MAKE RESERVATION ====================
     
-    private static void makeReservation() {
-        System.out.println("\n═══════════════ MAKE A RESERVATION ═══════════════\n");
-        
-        // Check available rooms first
-        List<Room> available = hotel.getAvailableRooms();
-        if (available.isEmpty()) {
-            System.out.println("❌ Sorry, no rooms are available at the moment.");
-            return;
-        }
-        
-        printRoomList(available, "AVAILABLE ROOMS");
-        
-        // Get room selection
-        int roomNumber = getIntInput("\nEnter Room Number to book: ");
-        Room room = hotel.getRoomByNumber(roomNumber);
-        
-        if (room == null) {
-            System.out.println("❌ Room not found!");
-            return;
-        }
+    /**
+     * Asks for guest details; returning guests are recognised by phone or
+     * ID proof.
+     */
+    private static Guest readGuest() {
+        System.out.println("\n--- Guest Details ---");
+        System.out.print("Enter Phone Number: ");
+        String phone = scanner.nextLine();
+        System.out.print("Enter ID Proof (Aadhar/Passport): ");
+        String idProof = scanner.nextLine();
         
-        if (!room.isAvailable()) {
-            System.out.println("❌ This room is not available!");
-            return;
+        Guest guest = hotel.findGuestByIdentity(phone, idProof);
+        if (guest != null) {
+            System.out.println("👋 Welcome back, " + guest.getName() + " (" + guest.getGuestId() + ")");
+            return guest;
         }
-        
-        // Get guest details
-        System.out.println("\n--- Guest Details ---");
         System.out.print("Enter Guest Name: ");
         String name = scanner.nextLine();
-        System.out.print("Enter Phone Number: ");
-        String phone = scanner.nextLine();
         System.out.print("Enter Email: ");
         String email = scanner.nextLine();
-        System.out.print("Enter ID Proof (Aadhar/Passport): ");
-        String idProof = scanner.nextLine();
         System.out.print("Enter Address: ");
         String address = scanner.nextLine();
+        return hotel.findOrAddGuest(name, phone, email, idProof, address);
+    }
+    
+    /**
+     * Queues the guest for the first room of a type that frees up for the dates.
+     */
+    private static void joinWaitlist(LocalDate checkIn, LocalDate checkOut) {
+        Room.RoomType type = readRoomType();
+        if (type == null) {
+            return;
+        }
+        Guest guest = readGuest();
+        double advance = getDoubleInput("\nEnter Advance Payment Amount: ₹");
         
-        Guest guest = hotel.addGuest(name, phone, email, idProof, address);
+        WaitlistRequest request = hotel.joinWaitlist(guest, type, checkIn, checkOut, advance);
+        if (request == null) {
+            System.out.println("❌ Check-in date cannot be in the past!");
+        } else if (request.getStatus() == WaitlistRequest.Status.FILLED) {
+            System.out.println("\n✅ A room just became free - RESERVATION SUCCESSFUL!");
+            System.out.println(request.getReservation().getFullDetails());
+        } else {
+            System.out.println("\n✅ Added to the waitlist as " + request.getRequestId()
+                + " (" + hotel.getWaitlistSize() + " waiting). The room is booked automatically"
+                + " when one frees up.");
+        }
+    }
+    
+    private static void makeReservation() {
+        System.out.println("\n═══════════════ MAKE A RESERVATION ═══════════════\n");
         
-        // Get dates
-        System.out.println("\n--- Booking Dates ---");
+        // Get dates first so only rooms free for the whole stay are offered
+        System.out.println("--- Booking Dates ---");
         LocalDate checkIn = getDateInput("Enter Check-in Date (DD-MM-YYYY): ");
         LocalDate checkOut = getDateInput("Enter Check-out Date (DD-MM-YYYY): ");
         
@@ -209,14 +305,43 @@ public class HotelApp {
             return;
         }
         
+        List<Room> available = hotel.getAvailableRooms(checkIn, checkOut);
+        if (available.isEmpty()) {
+            System.out.println("❌ Sorry, no rooms are available for these dates.");
+            System.out.print("Join the waitlist for a room type? (Y/N): ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("Y")) {
+                joinWaitlist(checkIn, checkOut);
+            }
+            return;
+        }
+        
+        printRoomList(available, "AVAILABLE ROOMS " + checkIn.format(DATE_FORMAT)
+            + " TO " + checkOut.format(DATE_FORMAT));
+        
+        // Get room selection
+        int roomNumber = getIntInput("\nEnter Room Number to book: ");
+        Room room = hotel.getRoomByNumber(roomNumber);
+        
+        if (room == null) {
+            System.out.println("❌ Room not found!");
+            return;
+        }
+        
+        if (!hotel.isRoomAvailable(room, checkIn, checkOut)) {
+            System.out.println("❌ This room is not available for these dates!");
+            return;
+        }
+        
+        Guest guest = readGuest();
+        
         // Calculate and show amount
         long nights = java.time.temporal.ChronoUnit.DAYS.between(checkIn, checkOut);
-        double total = nights * room.getPricePerNight();
+        double total = hotel.quote(room, checkIn, checkOut);
         
         System.out.println("\n--- Booking Summary ---");
         System.out.printf("Room: %d (%s)\n", room.getRoomNumber(), room.getRoomType().getDisplayName());
         System.out.printf("Duration: %d nights\n", nights);
-        System.out.printf("Rate: ₹%.0f per night\n", room.getPricePerNight());
+        System.out.printf("Rate: ₹%.0f per night on average\n", total / nights);
         System.out.printf("Total Amount: ₹%.2f\n", total);
         
         // Get advance payment
@@ -225,6 +350,11 @@ public class HotelApp {
         // Create reservation
         Reservation reservation = hotel.makeReservation(guest, room, checkIn, checkOut, advance);
         
+        if (reservation == null) {
+            System.out.println("❌ This room was just booked for these dates!");
+            return;
+        }
+        
         System.out.println("\n✅ RESERVATION SUCCESSFUL!");
         System.out.println(reservation.getFullDetails());
     }
@@ -259,13 +389,31 @@ public class HotelApp {
             return;
         }
         
+        if (reservation.getCheckInDate().isAfter(LocalDate.now())) {
+            System.out.println("❌ Check-in opens on " + reservation.getCheckInDate().format(DATE_FORMAT) + "!");
+            return;
+        }
+        
+        Reservation occupant = hotel.findReservationByRoom(reservation.getRoom().getRoomNumber());
+        if (occupant != null && occupant.getStatus() == Reservation.Status.CHECKED_IN) {
+            System.out.println("❌ Room " + reservation.getRoom().getRoomNumber() + " is still occupied by "
+                + occupant.getReservationId() + "!");
+            return;
+        }
+        
         System.out.println(reservation.getFullDetails());
         
         System.out.print("Confirm Check-In? (Y/N): ");
         String confirm = scanner.nextLine();
         
         if (confirm.equalsIgnoreCase("Y")) {
-            hotel.checkIn(reservation);
+            if (!hotel.checkIn(reservation)) {
+                // Something changed since the checks above
+                String reason = hotel.checkInRefusal(reservation);
+                System.out.println("❌ Check-in refused: " + (reason != null ? reason
+                    : "the reservation was updated elsewhere (status " + reservation.getStatus() + ")"));
+                return;
+            }
             System.out.println("\n✅ CHECK-IN SUCCESSFUL!");
             System.out.printf("Room %d is now assigned to %s\n", 
                 reservation.getRoom().getRoomNumber(), reservation.getGuest().getName());
@@ -314,7 +462,10 @@ public class HotelApp {
         String confirm = scanner.nextLine();
         
         if (confirm.equalsIgnoreCase("Y")) {
-            hotel.checkOut(reservation);
+            if (!hotel.checkOut(reservation)) {
+                System.out.println("❌ Reservation was updated elsewhere. Status: " + reservation.getStatus());
+                return;
+            }
             System.out.println("\n✅ CHECK-OUT SUCCESSFUL!");
             System.out.printf("Room %d is now available.\n", reservation.getRoom().getRoomNumber());
         } else {
@@ -330,32 +481,89 @@ public class HotelApp {
         System.out.println("╠══════════════════════════════════════════════════════════╣");
         System.out.println("║  1. All Reservations                                     ║");
         System.out.println("║  2. Active Reservations Only                             ║");
+        System.out.println("║  3. Filter by Status, Dates or Guest                     ║");
         System.out.println("║  0. Back                                                 ║");
         System.out.println("╚══════════════════════════════════════════════════════════╝");
         
         int choice = getIntInput("Enter your choice: ");
-        List<Reservation> reservations;
+        ReservationQuery query;
         
         switch (choice) {
             case 1:
-                reservations = hotel.getAllReservations();
+                query = ReservationQuery.all();
                 break;
             case 2:
-                reservations = hotel.getActiveReservations();
+                query = ReservationQuery.active();
+                break;
+            case 3:
+                query = readReservationQuery();
+                if (query == null) {
+                    return;
+                }
                 break;
             default:
                 return;
         }
+        printReservationPages(query);
+    }
+    
+    /**
+     * Asks for optional filters; an empty answer leaves that filter off.
+     */
+    private static ReservationQuery readReservationQuery() {
+        ReservationQuery query = ReservationQuery.all();
+        
+        System.out.print("Status (CONFIRMED/CHECKED_IN/CHECKED_OUT/CANCELLED, Enter for any): ");
+        String status = scanner.nextLine().trim();
+        if (!status.isEmpty()) {
+            try {
+                query = query.withStatus(Reservation.Status.valueOf(status.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                System.out.println("❌ Unknown status: " + status);
+                return null;
+            }
+        }
+        
+        System.out.print("Filter by stay dates? (Y/N): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("Y")) {
+            LocalDate from = getDateInput("From Date (DD-MM-YYYY): ");
+            LocalDate to = getDateInput("To Date (DD-MM-YYYY): ");
+            if (from == null || to == null || !to.isAfter(from)) {
+                System.out.println("❌ Invalid date range!");
+                return null;
+            }
+            query = query.withDates(from, to);
+        }
         
-        if (reservations.isEmpty()) {
+        System.out.print("Guest ID (e.g. G101, Enter for any): ");
+        String guestId = scanner.nextLine().trim();
+        return guestId.isEmpty() ? query : query.withGuest(guestId);
+    }
+    
+    /**
+     * Prints the matches a page at a time, asking before fetching the next.
+     */
+    private static void printReservationPages(ReservationQuery query) {
+        ReservationPage page = hotel.findReservations(query, null, PAGE_SIZE);
+        if (page.getReservations().isEmpty()) {
             System.out.println("\n❌ No reservations found.");
             return;
         }
         
         System.out.println("\n═══════════════ RESERVATIONS ═══════════════\n");
-        for (Reservation res : reservations) {
-            System.out.println(res);
-            System.out.println("─".repeat(80));
+        while (true) {
+            for (Reservation res : page.getReservations()) {
+                System.out.println(res);
+                System.out.println("─".repeat(80));
+            }
+            if (!page.hasMore()) {
+                return;
+            }
+            System.out.print("Press Enter for more, or 0 to stop: ");
+            if (scanner.nextLine().trim().equals("0")) {
+                return;
+            }
+            page = hotel.findReservations(query, page.getNextCursor(), PAGE_SIZE);
         }
     }
     
@@ -376,6 +584,25 @@ public class HotelApp {
         }
     }
     
+    // ==================== SEARCH GUESTS ====================
+    
+    private static void searchGuests() {
+        System.out.println("\n═══════════════ SEARCH GUESTS ═══════════════\n");
+        
+        System.out.print("Enter name, email or ID proof (or the start of one): ");
+        String query = scanner.nextLine();
+        
+        List<Guest> guests = hotel.searchGuests(query, 20);
+        
+        if (guests.isEmpty()) {
+            System.out.println("❌ No matching guests found!");
+        } else {
+            for (Guest guest : guests) {
+                System.out.println(guest);
+            }
+        }
+    }
+    
     // ==================== CANCEL RESERVATION ====================
     
     private static void cancelReservation() {
@@ -407,7 +634,10 @@ public class HotelApp {
         String confirm = scanner.nextLine();
         
         if (confirm.equalsIgnoreCase("Y")) {
-            hotel.cancelReservation(reservation);
+            if (!hotel.cancelReservation(reservation)) {
+                System.out.println("❌ Reservation was updated elsewhere. Status: " + reservation.getStatus());
+                return;
+            }
             System.out.println("\n✅ RESERVATION CANCELLED!");
             if (reservation.getAdvancePaid() > 0) {
                 System.out.printf("Refund amount: ₹%.2f\n", reservation.getAdvancePaid() * 0.5);
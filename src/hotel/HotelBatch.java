@@ -0,0 +1,245 @@
+package hotel;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Headless command mode: runs a script of hotel operations, one per line,
+ * as a single persistence commit and without the interactive menu.
+ * <p>
+ * Commands (dates are YYYY-MM-DD, values with spaces go in double quotes):
+ * <pre>
+ *   reserve room=101 checkIn=2025-01-10 checkOut=2025-01-12 name="Asha Rao" phone=9876543210
+ *           [email=...] [idProof=...] [address="..."] [advance=2000]
+ *   checkin  RES1001
+ *   checkout RES1001
+ *   cancel   RES1001
+ *   bill     RES1001
+ * </pre>
+ * Blank lines and lines starting with {@code #} are skipped. Each command
+ * prints one result line ({@code OK ...} or {@code ERROR line N: ...});
+ * {@code bill} also prints the bill. Output is buffered and flushed when
+ * the batch ends. A failed command is reported and the rest still run.
+ */
+public class HotelBatch {
+    
+    private final Hotel hotel;
+    
+    /**
+     * Outcome of one batch.
+     */
+    public static class Report {
+        private int commands;
+        private int failed;
+        
+        public int getCommands() { return commands; }
+        public int getFailed() { return failed; }
+    }
+    
+    public HotelBatch(Hotel hotel) {
+        this.hotel = hotel;
+    }
+    
+    /**
+     * Runs the commands from {@code in}, writing results to {@code out}.
+     */
+    public Report run(Reader in, Writer out) throws IOException {
+        BufferedReader lines = new BufferedReader(in);
+        PrintWriter results = new PrintWriter(new BufferedWriter(out));
+        Report report = new Report();
+        IOException failure = hotel.runBatch(() -> {
+            int lineNumber = 0;
+            try {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    lineNumber++;
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        continue;
+                    }
+                    report.commands++;
+                    try {
+                        results.println("OK " + execute(tokenize(trimmed), results));
+                    } catch (DateTimeParseException e) {
+                        report.failed++;
+                        results.println("ERROR line " + lineNumber + ": invalid date, expected YYYY-MM-DD: "
+                            + e.getParsedString());
+                    } catch (IllegalArgumentException e) {
+                        report.failed++;
+                        results.println("ERROR line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        });
+        results.println("Batch finished: " + report.commands + " commands, " + report.failed + " failed");
+        results.flush();
+        if (failure != null) {
+            throw failure;
+        }
+        return report;
+    }
+    
+    /**
+     * Runs a script file, or standard input for "-", printing to standard output.
+     */
+    public Report run(String source) throws IOException {
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        if (source.equals("-")) {
+            return run(new InputStreamReader(System.in, StandardCharsets.UTF_8), out);
+        }
+        try (Reader in = new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8)) {
+            return run(in, out);
+        }
+    }
+    
+    // ==================== COMMANDS ====================
+    
+    /**
+     * Applies one command and returns the text after "OK".
+     */
+    private String execute(List<String> tokens, PrintWriter results) {
+        String command = tokens.get(0).toLowerCase(Locale.ROOT);
+        switch (command) {
+            case "reserve": return reserve(options(tokens));
+            case "checkin": case "checkout": case "cancel": case "bill": break;
+            default: throw new IllegalArgumentException("Unknown command: " + tokens.get(0));
+        }
+        if (tokens.size() != 2) {
+            throw new IllegalArgumentException("Usage: " + command + " <reservationId>");
+        }
+        Reservation reservation = hotel.findReservationById(tokens.get(1));
+        if (reservation == null) {
+            throw new IllegalArgumentException("Reservation not found: " + tokens.get(1));
+        }
+        
+        boolean applied;
+        switch (command) {
+            case "checkin": applied = hotel.checkIn(reservation); break;
+            case "checkout": applied = hotel.checkOut(reservation); break;
+            case "cancel": applied = hotel.cancelReservation(reservation); break;
+            default:
+                results.print(reservation.generateBill());
+                return command + " " + reservation.getReservationId();
+        }
+        if (!applied) {
+            String reason = command.equals("checkin") ? hotel.checkInRefusal(reservation) : null;
+            throw new IllegalArgumentException("Cannot " + command + " " + reservation.getReservationId()
+                + ": " + (reason != null ? reason : "the reservation is " + reservation.getStatus()));
+        }
+        return command + " " + reservation.getReservationId();
+    }
+    
+    private String reserve(Map<String, String> options) {
+        int roomNumber = (int) number(options, "room");
+        Room room = hotel.getRoomByNumber(roomNumber);
+        if (room == null) {
+            throw new IllegalArgumentException("Room not found: " + roomNumber);
+        }
+        LocalDate checkIn = LocalDate.parse(required(options, "checkIn"));
+        LocalDate checkOut = LocalDate.parse(required(options, "checkOut"));
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("checkOut must be after checkIn");
+        }
+        // Avoid registering a guest for a booking that is bound to fail
+        if (!hotel.isRoomAvailable(room, checkIn, checkOut)) {
+            throw new IllegalArgumentException("Room " + roomNumber + " is not available from "
+                + checkIn + " to " + checkOut);
+        }
+        double advance = options.containsKey("advance") ? number(options, "advance") : 0;
+        Guest guest = hotel.findOrAddGuest(required(options, "name"), required(options, "phone"),
+            options.getOrDefault("email", ""), options.getOrDefault("idProof", ""),
+            options.getOrDefault("address", ""));
+        
+        Reservation reservation = hotel.makeReservation(guest, room, checkIn, checkOut, advance);
+        if (reservation == null) {
+            throw new IllegalArgumentException("Room " + roomNumber + " is not available from "
+                + checkIn + " to " + checkOut);
+        }
+        return "reserve " + reservation.getReservationId() + " " + guest.getGuestId()
+            + String.format(" %.2f", reservation.getTotalAmount());
+    }
+    
+    // ==================== PARSING ====================
+    
+    /**
+     * The key=value arguments after the command name.
+     */
+    private static Map<String, String> options(List<String> tokens) {
+        Map<String, String> options = new HashMap<>();
+        for (String token : tokens.subList(1, tokens.size())) {
+            int eq = token.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but found: " + token);
+            }
+            options.put(token.substring(0, eq), token.substring(eq + 1));
+        }
+        return options;
+    }
+    
+    private static String required(Map<String, String> options, String key) {
+        String value = options.get(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing " + key + "=");
+        }
+        return value.trim();
+    }
+    
+    private static double number(Map<String, String> options, String key) {
+        String value = required(options, key);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value);
+        }
+    }
+    
+    /**
+     * Splits a command line on whitespace. Double quotes group text with
+     * spaces, anywhere in a token (name="Asha Rao"); "" inside quotes is a
+     * literal quote.
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    token.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    token.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,485 @@
+package hotel;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Versioned binary snapshot format for hotel data.
+ * <pre>
+ *   header       : magic "HOTL", version, reservation/guest counters, journal sequence
+ *   rooms        : count, then 6-byte fixed records [number][type][flags]
+ *   guests       : count, then guest records        (live, decoded at startup)
+ *   reservations : count, then reservation records  (live, decoded at startup)
+ *   history      : guest records, then reservation records (closed, decoded on demand)
+ *   indexes      : history guests by ID, history reservations by ID, guests by phone hash
+ *   footer       : positions of the three indexes, magic
+ * </pre>
+ * A guest record is [id][name][phone][email][idProof][address]; a reservation
+ * record is [id][guestId][roomNumber][checkIn][checkOut][bookingDate][status]
+ * [totalAmount][advancePaid]. Strings are length-prefixed UTF-8 (length -1
+ * for null), dates are epoch days, and reservations refer to guests and rooms
+ * by numeric ID instead of embedding them.
+ * <p>
+ * Version 2 files are opened with {@link FileChannel#map}, so the history
+ * section costs nothing until a record is looked up. Version 1 files (all
+ * records live, no history) are still readable.
+ * <p>
+ * Closed records now go to a separate archive (cold segment) file instead,
+ * which {@link Hotel} only rewrites when it archives, so its snapshots leave
+ * the history section empty; a history section in an older file is moved to
+ * the archive on load. The archive uses the same history layout behind its
+ * own header:
+ * <pre>
+ *   header       : magic "HOTA", version
+ *   history      : guest records, then reservation records
+ *   indexes      : guests by ID, reservations by ID, guests by phone hash
+ *   footer       : positions of the three indexes, magic
+ * </pre>
+ */
+final class HotelCodec {
+    static final int MAGIC = 0x484F544C; // "HOTL"
+    static final short VERSION = 2;
+    static final int ARCHIVE_MAGIC = 0x484F5441; // "HOTA"
+    static final short ARCHIVE_VERSION = 1;
+    
+    static final int FOOTER_SIZE = 16;
+    static final int RESERVATION_RECORD_SIZE = 41;
+    
+    private static final int FLAG_AC = 1;
+    private static final int FLAG_WIFI = 2;
+    private static final int FLAG_AVAILABLE = 4;
+    
+    /**
+     * Everything stored in one snapshot file. The live lists are decoded
+     * eagerly; closed records live in {@link #history}, plus any closed records
+     * still held in memory that the next write should move there.
+     */
+    static final class Snapshot {
+        final List<Room> rooms;
+        final List<Guest> guests;
+        final List<Reservation> reservations;
+        final List<Guest> historyGuests;
+        final List<Reservation> historyReservations;
+        final SnapshotHistory history;
+        final int reservationCounter;
+        final int guestCounter;
+        final long journalSequence;
+        
+        Snapshot(List<Room> rooms, List<Guest> guests, List<Reservation> reservations,
+                 int reservationCounter, int guestCounter, long journalSequence) {
+            this(rooms, guests, reservations, Collections.emptyList(), Collections.emptyList(),
+                SnapshotHistory.EMPTY, reservationCounter, guestCounter, journalSequence);
+        }
+        
+        Snapshot(List<Room> rooms, List<Guest> guests, List<Reservation> reservations,
+                 List<Guest> historyGuests, List<Reservation> historyReservations,
+                 SnapshotHistory history, int reservationCounter, int guestCounter,
+                 long journalSequence) {
+            this.rooms = rooms;
+            this.guests = guests;
+            this.reservations = reservations;
+            this.historyGuests = historyGuests;
+            this.historyReservations = historyReservations;
+            this.history = history;
+            this.reservationCounter = reservationCounter;
+            this.guestCounter = guestCounter;
+            this.journalSequence = journalSequence;
+        }
+    }
+    
+    private HotelCodec() {
+    }
+    
+    // ==================== WRITING ====================
+    
+    /**
+     * Writes a snapshot. History records that are unchanged since the
+     * previous file are copied across as raw bytes without being decoded.
+     */
+    static void write(Snapshot snapshot, File file) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            write(snapshot, out);
+            out.flush();
+            // The journal is truncated once this returns, so the snapshot must be on disk
+            fileOut.getFD().sync();
+        }
+    }
+    
+    static void write(Snapshot snapshot, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(snapshot.reservationCounter);
+        out.writeInt(snapshot.guestCounter);
+        out.writeLong(snapshot.journalSequence);
+        
+        out.writeInt(snapshot.rooms.size());
+        for (Room room : snapshot.rooms) {
+            int flags = (room.hasAC() ? FLAG_AC : 0)
+                | (room.hasWifi() ? FLAG_WIFI : 0)
+                | (room.isAvailable() ? FLAG_AVAILABLE : 0);
+            out.writeInt(room.getRoomNumber());
+            out.writeByte(room.getRoomType().ordinal());
+            out.writeByte(flags);
+        }
+        
+        out.writeInt(snapshot.guests.size());
+        for (Guest guest : snapshot.guests) {
+            writeGuest(out, guest);
+        }
+        out.writeInt(snapshot.reservations.size());
+        for (Reservation reservation : snapshot.reservations) {
+            writeReservation(out, reservation);
+        }
+        
+        Set<Integer> liveGuests = new HashSet<>();
+        for (Guest guest : snapshot.guests) {
+            liveGuests.add(guestNumber(guest.getGuestId()));
+        }
+        Set<Integer> liveReservations = new HashSet<>();
+        for (Reservation reservation : snapshot.reservations) {
+            liveReservations.add(reservationNumber(reservation.getReservationId()));
+        }
+        writeHistory(out, snapshot.historyGuests, snapshot.historyReservations, liveGuests,
+            liveReservations, Collections.singletonList(snapshot.history));
+    }
+    
+    /**
+     * Writes an archive file from in-memory records and the records of
+     * earlier segments, which are copied as raw bytes. Where the same ID
+     * appears more than once, in-memory records win, then earlier segments in
+     * the order given.
+     */
+    static void writeArchive(File file, List<Guest> guests, List<Reservation> reservations,
+                             Set<Integer> droppedGuests, List<SnapshotHistory> previous)
+            throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(ARCHIVE_MAGIC);
+            out.writeShort(ARCHIVE_VERSION);
+            writeHistory(out, guests, reservations, new HashSet<>(droppedGuests), new HashSet<>(),
+                previous);
+            out.flush();
+            // Archived records are dropped from the snapshot next, so they must be on disk
+            fileOut.getFD().sync();
+        }
+    }
+    
+    /**
+     * Writes history records followed by their indexes and the footer.
+     * Records whose number is already in {@code writtenGuests} or
+     * {@code writtenReservations} are skipped.
+     */
+    private static void writeHistory(DataOutputStream out, List<Guest> guests,
+                                     List<Reservation> reservations, Set<Integer> writtenGuests,
+                                     Set<Integer> writtenReservations,
+                                     List<SnapshotHistory> previous) throws IOException {
+        // Guests: in-memory ones first, then untouched records from the old files
+        List<long[]> guestIndex = new ArrayList<>();
+        List<long[]> phoneIndex = new ArrayList<>();
+        for (Guest guest : guests) {
+            int number = guestNumber(guest.getGuestId());
+            if (!writtenGuests.add(number)) {
+                continue;
+            }
+            guestIndex.add(new long[] {number, out.size()});
+            phoneIndex.add(new long[] {phoneHash(guest.getPhone()), number});
+            writeGuest(out, guest);
+        }
+        for (SnapshotHistory history : previous) {
+            for (int i = 0; i < history.guestCount(); i++) {
+                int number = history.guestNumberAt(i);
+                if (!writtenGuests.add(number)) {
+                    continue;
+                }
+                guestIndex.add(new long[] {number, out.size()});
+                phoneIndex.add(new long[] {history.guestPhoneHash(i), number});
+                history.copyGuestRecord(i, out);
+            }
+        }
+        
+        // Reservations, with the same order of preference
+        List<long[]> reservationIndex = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            int number = reservationNumber(reservation.getReservationId());
+            if (!writtenReservations.add(number)) {
+                continue;
+            }
+            reservationIndex.add(new long[] {number, out.size()});
+            writeReservation(out, reservation);
+        }
+        for (SnapshotHistory history : previous) {
+            for (int i = 0; i < history.reservationCount(); i++) {
+                int number = history.reservationNumberAt(i);
+                if (!writtenReservations.add(number)) {
+                    continue;
+                }
+                reservationIndex.add(new long[] {number, out.size()});
+                history.copyReservationRecord(i, out);
+            }
+        }
+        
+        int guestIndexPosition = writeIndex(out, guestIndex);
+        int reservationIndexPosition = writeIndex(out, reservationIndex);
+        int phoneIndexPosition = writeIndex(out, phoneIndex);
+        out.writeInt(guestIndexPosition);
+        out.writeInt(reservationIndexPosition);
+        out.writeInt(phoneIndexPosition);
+        out.writeInt(MAGIC);
+    }
+    
+    /**
+     * Writes [count][(key, value) pairs sorted by key] and returns its position.
+     */
+    private static int writeIndex(DataOutputStream out, List<long[]> entries) throws IOException {
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        int position = out.size();
+        out.writeInt(entries.size());
+        for (long[] entry : entries) {
+            out.writeInt((int) entry[0]);
+            out.writeInt((int) entry[1]);
+        }
+        return position;
+    }
+    
+    private static void writeGuest(DataOutputStream out, Guest guest) throws IOException {
+        out.writeInt(guestNumber(guest.getGuestId()));
+        writeString(out, guest.getName());
+        writeString(out, guest.getPhone());
+        writeString(out, guest.getEmail());
+        writeString(out, guest.getIdProof());
+        writeString(out, guest.getAddress());
+    }
+    
+    private static void writeReservation(DataOutputStream out, Reservation reservation) throws IOException {
+        out.writeInt(reservationNumber(reservation.getReservationId()));
+        out.writeInt(guestNumber(reservation.getGuest().getGuestId()));
+        out.writeInt(reservation.getRoom().getRoomNumber());
+        out.writeInt((int) reservation.getCheckInDate().toEpochDay());
+        out.writeInt((int) reservation.getCheckOutDate().toEpochDay());
+        out.writeInt((int) reservation.getBookingDate().toEpochDay());
+        out.writeByte(reservation.getStatus().ordinal());
+        out.writeDouble(reservation.getTotalAmount());
+        out.writeDouble(reservation.getAdvancePaid());
+    }
+    
+    // ==================== READING ====================
+    
+    /**
+     * Maps the file and decodes rooms and live records. History records stay
+     * in the mapping and are decoded on demand through the resolver.
+     */
+    static Snapshot read(File file, SnapshotHistory.Resolver resolver) throws IOException {
+        try {
+            return decode(map(file), resolver);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt data file", e);
+        }
+    }
+    
+    /**
+     * Maps an archive file. Records are decoded on demand through the resolver.
+     */
+    static SnapshotHistory openArchive(File file, SnapshotHistory.Resolver resolver) throws IOException {
+        try {
+            ByteBuffer buffer = map(file);
+            if (buffer.getInt(0) != ARCHIVE_MAGIC) {
+                throw new IOException("Not a hotel archive file");
+            }
+            short version = buffer.getShort(4);
+            if (version != ARCHIVE_VERSION) {
+                throw new IOException("Unsupported archive file version: " + version);
+            }
+            return history(buffer, resolver);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt archive file", e);
+        }
+    }
+    
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    private static SnapshotHistory history(ByteBuffer buffer, SnapshotHistory.Resolver resolver)
+            throws IOException {
+        int footer = buffer.limit() - FOOTER_SIZE;
+        if (footer < 0 || buffer.getInt(footer + 12) != MAGIC) {
+            throw new IOException("Data file footer is missing");
+        }
+        return new SnapshotHistory(buffer, buffer.getInt(footer), buffer.getInt(footer + 4),
+            buffer.getInt(footer + 8), resolver);
+    }
+    
+    private static Snapshot decode(ByteBuffer buffer, SnapshotHistory.Resolver resolver)
+            throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a hotel data file");
+        }
+        short version = in.getShort();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported data file version: " + version);
+        }
+        int reservationCounter = in.getInt();
+        int guestCounter = in.getInt();
+        long journalSequence = in.getLong();
+        
+        Room.RoomType[] types = Room.RoomType.values();
+        int roomCount = in.getInt();
+        List<Room> rooms = new ArrayList<>(roomCount);
+        Map<Integer, Room> roomsByNumber = new HashMap<>(roomCount * 2);
+        for (int i = 0; i < roomCount; i++) {
+            int number = in.getInt();
+            Room.RoomType type = types[in.get() & 0xFF];
+            int flags = in.get() & 0xFF;
+            Room room = new Room(number, type, (flags & FLAG_AC) != 0, (flags & FLAG_WIFI) != 0);
+            room.setAvailable((flags & FLAG_AVAILABLE) != 0);
+            rooms.add(room);
+            roomsByNumber.put(number, room);
+        }
+        
+        int guestCount = in.getInt();
+        List<Guest> guests = new ArrayList<>(guestCount);
+        Map<Integer, Guest> guestsByNumber = new HashMap<>(guestCount * 2);
+        for (int i = 0; i < guestCount; i++) {
+            Guest guest = readGuest(in);
+            guests.add(guest);
+            guestsByNumber.put(guestNumber(guest.getGuestId()), guest);
+        }
+        
+        int reservationCount = in.getInt();
+        List<Reservation> reservations = new ArrayList<>(reservationCount);
+        for (int i = 0; i < reservationCount; i++) {
+            reservations.add(readReservation(in, guestsByNumber::get, roomsByNumber::get));
+        }
+        
+        SnapshotHistory history = SnapshotHistory.EMPTY;
+        if (version == VERSION) {
+            history = history(buffer, resolver);
+        }
+        return new Snapshot(rooms, guests, reservations, Collections.emptyList(),
+            Collections.emptyList(), history, reservationCounter, guestCounter, journalSequence);
+    }
+    
+    static Guest readGuest(ByteBuffer in) {
+        int number = in.getInt();
+        return new Guest("G" + number, readString(in), readString(in),
+            readString(in), readString(in), readString(in));
+    }
+    
+    /**
+     * Decodes a reservation record, resolving its guest and room by number.
+     */
+    static Reservation readReservation(ByteBuffer in, IntFunction<Guest> guests,
+                                       IntFunction<Room> rooms) throws IOException {
+        int number = in.getInt();
+        Guest guest = guests.apply(in.getInt());
+        Room room = rooms.apply(in.getInt());
+        LocalDate checkIn = LocalDate.ofEpochDay(in.getInt());
+        LocalDate checkOut = LocalDate.ofEpochDay(in.getInt());
+        LocalDate bookingDate = LocalDate.ofEpochDay(in.getInt());
+        Reservation.Status status = Reservation.Status.values()[in.get() & 0xFF];
+        double totalAmount = in.getDouble();
+        double advancePaid = in.getDouble();
+        if (guest == null || room == null) {
+            throw new IOException("Reservation RES" + number + " refers to a missing guest or room");
+        }
+        return new Reservation("RES" + number, guest, room, checkIn, checkOut,
+            bookingDate, status, totalAmount, advancePaid);
+    }
+    
+    /**
+     * Reads a data file written by the original Java-serialization format.
+     */
+    @SuppressWarnings("unchecked")
+    static Snapshot readLegacy(File file) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            List<Room> rooms = (List<Room>) ois.readObject();
+            List<Guest> guests = (List<Guest>) ois.readObject();
+            List<Reservation> reservations = (List<Reservation>) ois.readObject();
+            int reservationCounter = ois.readInt();
+            int guestCounter = ois.readInt();
+            long journalSequence;
+            try {
+                journalSequence = ois.readLong();
+            } catch (EOFException e) {
+                journalSequence = 0; // written before journaling
+            }
+            return new Snapshot(rooms, guests, reservations, reservationCounter, guestCounter,
+                journalSequence);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unreadable legacy data file: " + e.getMessage(), e);
+        }
+    }
+    
+    // ==================== ENCODING ====================
+    
+    static int guestNumber(String guestId) throws IOException {
+        return parseNumber(guestId, "G");
+    }
+    
+    static int reservationNumber(String reservationId) throws IOException {
+        return parseNumber(reservationId, "RES");
+    }
+    
+    private static int parseNumber(String id, String prefix) throws IOException {
+        if (id == null || !id.startsWith(prefix)) {
+            throw new IOException("Unexpected ID: " + id);
+        }
+        try {
+            return Integer.parseInt(id.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected ID: " + id);
+        }
+    }
+    
+    static int phoneHash(String phone) {
+        return phone == null ? 0 : phone.hashCode();
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+    
+    /** Skips one length-prefixed string. */
+    static void skipString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+}
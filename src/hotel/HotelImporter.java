@@ -0,0 +1,246 @@
+package hotel;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Bulk import of guests and reservations from CSV or NDJSON, streamed one
+ * line at a time and applied as a single persistence commit.
+ * <p>
+ * Every row names a guest and may book a room:
+ * <pre>
+ *   name, phone, email, idProof, address, roomNumber, checkIn, checkOut, advance
+ * </pre>
+ * CSV files need a header row naming these columns (in any order); NDJSON
+ * lines are objects with the same keys. Dates are YYYY-MM-DD. A row without
+ * a room only registers the guest. Guests are matched by phone, so a group
+ * booking can list the same guest on several rows.
+ * <p>
+ * Rows that fail validation are reported with their line number and
+ * skipped; the rest of the file is still imported.
+ */
+public class HotelImporter {
+    private static final int MAX_PRINTED_ERRORS = 50;
+    
+    private final Hotel hotel;
+    
+    /**
+     * Outcome of one import.
+     */
+    public static class Report {
+        private int rows;
+        private int guestsAdded;
+        private int reservationsAdded;
+        private final List<String> errors = new ArrayList<>();
+        
+        public int getRows() { return rows; }
+        public int getGuestsAdded() { return guestsAdded; }
+        public int getReservationsAdded() { return reservationsAdded; }
+        public List<String> getErrors() { return errors; }
+        
+        public void print() {
+            System.out.println("\n📥 Import finished: " + rows + " rows, " + guestsAdded
+                + " guests added, " + reservationsAdded + " reservations added, "
+                + errors.size() + " errors");
+            for (int i = 0; i < errors.size() && i < MAX_PRINTED_ERRORS; i++) {
+                System.out.println("  ❌ " + errors.get(i));
+            }
+            if (errors.size() > MAX_PRINTED_ERRORS) {
+                System.out.println("  ... and " + (errors.size() - MAX_PRINTED_ERRORS) + " more");
+            }
+        }
+    }
+    
+    public HotelImporter(Hotel hotel) {
+        this.hotel = hotel;
+    }
+    
+    /**
+     * Imports a .csv file, or NDJSON for any other extension (.ndjson, .jsonl).
+     */
+    public Report importFile(File file) throws IOException {
+        boolean csv = file.getName().toLowerCase(Locale.ROOT).endsWith(".csv");
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return csv ? importCsv(reader) : importNdjson(reader);
+        }
+    }
+    
+    public Report importCsv(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        String headerLine = in.readLine();
+        if (headerLine == null) {
+            return new Report();
+        }
+        List<String> header = parseCsvLine(headerLine);
+        for (int i = 0; i < header.size(); i++) {
+            header.set(i, header.get(i).trim());
+        }
+        return importLines(in, 2, line -> {
+            List<String> values = parseCsvLine(line);
+            if (values.size() > header.size()) {
+                throw new IllegalArgumentException("Expected " + header.size()
+                    + " columns but found " + values.size());
+            }
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i).trim();
+                row.put(header.get(i), value.isEmpty() ? null : value);
+            }
+            return row;
+        });
+    }
+    
+    public Report importNdjson(Reader reader) throws IOException {
+        return importLines(new BufferedReader(reader), 1, Json::parseObject);
+    }
+    
+    private interface RowParser {
+        Map<String, Object> parse(String line);
+    }
+    
+    /**
+     * Streams the remaining lines into the hotel inside one batch.
+     */
+    private Report importLines(BufferedReader in, int firstLine, RowParser parser) throws IOException {
+        Report report = new Report();
+        IOException failure = hotel.runBatch(() -> {
+            int lineNumber = firstLine - 1;
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    report.rows++;
+                    try {
+                        applyRow(parser.parse(line), report);
+                    } catch (DateTimeParseException e) {
+                        report.errors.add("Line " + lineNumber + ": invalid date, expected YYYY-MM-DD: "
+                            + e.getParsedString());
+                    } catch (IllegalArgumentException e) {
+                        report.errors.add("Line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        });
+        if (failure != null) {
+            throw failure;
+        }
+        return report;
+    }
+    
+    /**
+     * Validates a row fully before changing anything, then registers the
+     * guest (unless already known by phone) and books the room.
+     */
+    private void applyRow(Map<String, Object> row, Report report) {
+        String name = required(row, "name");
+        String phone = required(row, "phone");
+        
+        Room room = null;
+        LocalDate checkIn = null;
+        LocalDate checkOut = null;
+        double advance = 0;
+        if (row.get("roomNumber") != null) {
+            int roomNumber = (int) number(row, "roomNumber");
+            room = hotel.getRoomByNumber(roomNumber);
+            if (room == null) {
+                throw new IllegalArgumentException("Room not found: " + roomNumber);
+            }
+            checkIn = LocalDate.parse(required(row, "checkIn"));
+            checkOut = LocalDate.parse(required(row, "checkOut"));
+            if (!checkOut.isAfter(checkIn)) {
+                throw new IllegalArgumentException("checkOut must be after checkIn");
+            }
+            if (!hotel.isRoomAvailable(room, checkIn, checkOut)) {
+                throw new IllegalArgumentException("Room " + roomNumber + " is not available from "
+                    + checkIn + " to " + checkOut);
+            }
+            advance = row.get("advance") == null ? 0 : number(row, "advance");
+        }
+        
+        Guest guest = hotel.findGuestByIdentity(phone, optional(row, "idProof"));
+        if (guest == null) {
+            guest = hotel.findOrAddGuest(name, phone, optional(row, "email"), optional(row, "idProof"),
+                optional(row, "address"));
+            report.guestsAdded++;
+        }
+        
+        if (room != null) {
+            if (hotel.makeReservation(guest, room, checkIn, checkOut, advance) == null) {
+                throw new IllegalArgumentException("Room " + room.getRoomNumber()
+                    + " is not available from " + checkIn + " to " + checkOut);
+            }
+            report.reservationsAdded++;
+        }
+    }
+    
+    // ==================== FIELD PARSING ====================
+    
+    private static String required(Map<String, Object> row, String field) {
+        Object value = row.get(field);
+        if (value == null || value.toString().trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value.toString().trim();
+    }
+    
+    private static String optional(Map<String, Object> row, String field) {
+        Object value = row.get(field);
+        return value == null ? "" : value.toString().trim();
+    }
+    
+    private static double number(Map<String, Object> row, String field) {
+        Object value = row.get(field);
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + field + ": " + value);
+        }
+    }
+    
+    /**
+     * Splits one CSV line, honouring double-quoted fields with "" escapes.
+     * Quoted fields may contain commas but not line breaks.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(field.toString());
+        return values;
+    }
+}
@@ -0,0 +1,526 @@
+package hotel;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of hotel operations written between snapshots.
+ * Each record is framed as [length][crc32][payload] so that a torn tail left
+ * behind by a crash is detected and dropped on replay. All methods are
+ * synchronized, so concurrent writers append whole records one at a time.
+ * <p>
+ * By default each record is written and flushed on the caller's thread. In
+ * group-commit mode records are queued instead, and a single writer thread
+ * writes and fsyncs them in batches: when the batch is full or the time
+ * window since its first record has passed. Callers then wait in
+ * {@link #awaitDurable} until the batch holding their record is on disk.
+ * <p>
+ * When a snapshot is taken the file is {@link #rotate rotated} into a
+ * segment named after its last sequence number, and new records go to a
+ * fresh file. Segments are deleted once a snapshot covering them is on disk,
+ * so a snapshot can be written in the background without losing records.
+ */
+class HotelJournal {
+    static final byte ADD_GUEST = 1;
+    static final byte RESERVE = 2;
+    static final byte CHECK_IN = 3;
+    static final byte CHECK_OUT = 4;
+    static final byte CANCEL = 5;
+    
+    // Largest payload a record can have: a guest with six strings at writeUTF's limit
+    static final int MAX_RECORD_SIZE = 9 + 6 * (3 + 65535);
+    
+    // Longest wait between attempts to write a failed group-commit batch
+    private static final long MAX_RETRY_DELAY_MILLIS = 1000;
+    
+    /**
+     * Receives the records of the journal during replay.
+     */
+    interface Handler {
+        void guestAdded(String guestId, String name, String phone, String email,
+                        String idProof, String address);
+        
+        /** {@code totalAmount} is NaN for records written before prices were journaled. */
+        void reservationMade(String reservationId, String guestId, int roomNumber,
+                             LocalDate checkIn, LocalDate checkOut, LocalDate bookingDate,
+                             double advance, double totalAmount);
+        
+        void statusChanged(byte op, String reservationId);
+    }
+    
+    private final File file;
+    private DataOutputStream out;
+    private long sequence;
+    private int recordCount;
+    
+    // Group commit; pending is null while the mode is off
+    private ByteArrayOutputStream pending;
+    private int pendingRecords;
+    private long windowNanos;
+    private int maxBatchSize;
+    private Thread writer;
+    private volatile boolean running;
+    private FileOutputStream batchOut; // guarded by ioLock
+    private final Object ioLock = new Object();
+    private final Object durableLock = new Object();
+    private long durableSequence; // guarded by durableLock
+    private IOException writeFailure; // guarded by durableLock; set until a batch is written again
+    private final BatchStats batchStats = new BatchStats();
+    
+    /**
+     * Sizes of the batches written in group-commit mode.
+     */
+    static class BatchStats {
+        // histogram[i] counts batches of 2^i to 2^(i+1)-1 records
+        private final long[] histogram = new long[16];
+        private long batches;
+        private long records;
+        private int largest;
+        
+        synchronized void record(int size) {
+            batches++;
+            records += size;
+            largest = Math.max(largest, size);
+            histogram[Math.min(histogram.length - 1, 31 - Integer.numberOfLeadingZeros(size))]++;
+        }
+        
+        synchronized long getBatches() { return batches; }
+        synchronized long getRecords() { return records; }
+        synchronized int getLargest() { return largest; }
+        synchronized long[] getHistogram() { return histogram.clone(); }
+        
+        synchronized double getAverage() {
+            return batches == 0 ? 0 : (double) records / batches;
+        }
+    }
+    
+    HotelJournal(File file) {
+        this.file = file;
+    }
+    
+    /** Sequence number of the last record written or replayed. */
+    synchronized long getSequence() { return sequence; }
+    
+    /** Number of records appended since the journal was last rotated. */
+    synchronized int getRecordCount() { return recordCount; }
+    
+    BatchStats getBatchStats() { return batchStats; }
+    
+    synchronized boolean isGroupCommit() { return pending != null; }
+    
+    // ==================== GROUP COMMIT ====================
+    
+    /**
+     * Switches to group commit: records are fsynced in batches of up to
+     * {@code maxBatchSize}, at most {@code windowMillis} after the first
+     * record of a batch was queued.
+     */
+    synchronized void startGroupCommit(long windowMillis, int maxBatchSize) {
+        if (pending != null) {
+            return;
+        }
+        close();
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.pending = new ByteArrayOutputStream(1 << 16);
+        markDurable(sequence);
+        running = true;
+        writer = new Thread(this::writeBatches, "hotel-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * Blocks until every record up to {@code recordSequence} is on disk.
+     * Returns at once when group commit is off. Throws if the batch holding
+     * the record could not be written; the writer keeps retrying it.
+     */
+    void awaitDurable(long recordSequence) {
+        if (!isGroupCommit()) {
+            return;
+        }
+        synchronized (durableLock) {
+            while (durableSequence < recordSequence) {
+                if (writeFailure != null) {
+                    throw new UncheckedIOException("Journal record " + recordSequence + " is not on disk",
+                        writeFailure);
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void markDurable(long recordSequence) {
+        synchronized (durableLock) {
+            writeFailure = null;
+            if (recordSequence > durableSequence) {
+                durableSequence = recordSequence;
+                durableLock.notifyAll();
+            }
+        }
+    }
+    
+    private void markFailed(IOException e) {
+        synchronized (durableLock) {
+            writeFailure = e;
+            durableLock.notifyAll();
+        }
+    }
+    
+    /**
+     * Writer thread: waits for queued records, gives the batch until its
+     * window closes or it is full, then writes and fsyncs it in one go.
+     * Appends continue into a fresh buffer while the batch is on its way to disk.
+     * <p>
+     * A batch that fails to write is cut back off the file and retried with
+     * backoff; nothing after it is marked durable until it succeeds, and
+     * the callers waiting on it are failed in the meantime.
+     */
+    private void writeBatches() {
+        while (true) {
+            byte[] batch;
+            int records;
+            long upTo;
+            synchronized (this) {
+                try {
+                    while (pendingRecords == 0 && running) {
+                        wait();
+                    }
+                    long deadline = System.nanoTime() + windowNanos;
+                    long left;
+                    while (pendingRecords < maxBatchSize && running
+                            && (left = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, left);
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                if (pendingRecords == 0) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = pending.toByteArray();
+                records = pendingRecords;
+                upTo = sequence;
+                pending.reset();
+                pendingRecords = 0;
+            }
+            
+            for (int attempt = 0; ; attempt++) {
+                IOException failure = writeBatch(batch);
+                if (failure == null) {
+                    batchStats.record(records);
+                    markDurable(upTo);
+                    break;
+                }
+                System.out.println("Error writing journal: " + failure.getMessage());
+                markFailed(failure);
+                if (!running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(Math.min(MAX_RETRY_DELAY_MILLIS, 10L << Math.min(attempt, 10)));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Appends and fsyncs one batch. On failure, truncates whatever part of
+     * it reached the file, so a retry does not duplicate records, and
+     * returns the error.
+     */
+    private IOException writeBatch(byte[] batch) {
+        synchronized (ioLock) {
+            long start = -1;
+            try {
+                if (batchOut == null) {
+                    batchOut = new FileOutputStream(file, true);
+                }
+                start = batchOut.getChannel().size();
+                batchOut.write(batch);
+                batchOut.getChannel().force(false);
+                return null;
+            } catch (IOException e) {
+                try {
+                    if (batchOut != null) {
+                        if (start >= 0) {
+                            batchOut.getChannel().truncate(start);
+                        }
+                        batchOut.close();
+                    }
+                } catch (IOException ignored) {
+                    // Reopened on the next attempt
+                }
+                batchOut = null;
+                return e;
+            }
+        }
+    }
+    
+    // ==================== APPEND ====================
+    
+    synchronized void logGuest(Guest guest) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream payload = header(bytes, ADD_GUEST);
+        payload.writeUTF(guest.getGuestId());
+        writeString(payload, guest.getName());
+        writeString(payload, guest.getPhone());
+        writeString(payload, guest.getEmail());
+        writeString(payload, guest.getIdProof());
+        writeString(payload, guest.getAddress());
+        append(bytes);
+    }
+    
+    synchronized void logReservation(Reservation reservation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream payload = header(bytes, RESERVE);
+        payload.writeUTF(reservation.getReservationId());
+        payload.writeUTF(reservation.getGuest().getGuestId());
+        payload.writeInt(reservation.getRoom().getRoomNumber());
+        payload.writeLong(reservation.getCheckInDate().toEpochDay());
+        payload.writeLong(reservation.getCheckOutDate().toEpochDay());
+        payload.writeLong(reservation.getBookingDate().toEpochDay());
+        payload.writeDouble(reservation.getAdvancePaid());
+        payload.writeDouble(reservation.getTotalAmount());
+        append(bytes);
+    }
+    
+    synchronized void logStatusChange(byte op, String reservationId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream payload = header(bytes, op);
+        payload.writeUTF(reservationId);
+        append(bytes);
+    }
+    
+    private DataOutputStream header(ByteArrayOutputStream bytes, byte op) throws IOException {
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeLong(sequence + 1);
+        payload.writeByte(op);
+        return payload;
+    }
+    
+    private void append(ByteArrayOutputStream bytes) throws IOException {
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (pending != null) {
+            DataOutputStream queue = new DataOutputStream(pending);
+            queue.writeInt(payload.length);
+            queue.writeInt((int) crc.getValue());
+            queue.write(payload);
+            // The first record opens the writer's time window; a full batch closes it
+            if (++pendingRecords == 1 || pendingRecords >= maxBatchSize) {
+                notifyAll();
+            }
+        } else {
+            if (out == null) {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            }
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+            out.flush();
+        }
+        sequence++;
+        recordCount++;
+    }
+    
+    // ==================== REPLAY ====================
+    
+    /**
+     * Replays every record newer than {@code afterSequence} into the handler,
+     * from the segments not yet discarded and then the current file.
+     * A corrupt or incomplete tail is truncated so later appends start clean.
+     */
+    synchronized void replay(long afterSequence, Handler handler) throws IOException {
+        sequence = afterSequence;
+        recordCount = 0;
+        for (Map.Entry<Long, File> segment : segments().entrySet()) {
+            // A segment ends at the sequence in its name
+            if (segment.getKey() > afterSequence) {
+                replay(segment.getValue(), afterSequence, handler);
+            }
+        }
+        if (file.exists()) {
+            replay(file, afterSequence, handler);
+        }
+    }
+    
+    private void replay(File source, long afterSequence, Handler handler) throws IOException {
+        long fileLength = source.length();
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(source)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    // A length no writer could produce, or past the end, is a torn tail
+                    if (length <= 0 || length > MAX_RECORD_SIZE || length > fileLength - validLength - 8) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                validLength += 8 + payload.length;
+                recordCount++;
+                
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long recordSequence = record.readLong();
+                if (recordSequence <= afterSequence) {
+                    continue;
+                }
+                apply(record, handler);
+                sequence = recordSequence;
+            }
+        }
+        
+        if (validLength < fileLength) {
+            try (RandomAccessFile raf = new RandomAccessFile(source, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+    
+    private void apply(DataInputStream record, Handler handler) throws IOException {
+        byte op = record.readByte();
+        switch (op) {
+            case ADD_GUEST:
+                handler.guestAdded(record.readUTF(), readString(record), readString(record),
+                    readString(record), readString(record), readString(record));
+                break;
+            case RESERVE:
+                handler.reservationMade(record.readUTF(), record.readUTF(), record.readInt(),
+                    LocalDate.ofEpochDay(record.readLong()),
+                    LocalDate.ofEpochDay(record.readLong()),
+                    LocalDate.ofEpochDay(record.readLong()),
+                    record.readDouble(),
+                    record.available() >= 8 ? record.readDouble() : Double.NaN);
+                break;
+            case CHECK_IN:
+            case CHECK_OUT:
+            case CANCEL:
+                handler.statusChanged(op, record.readUTF());
+                break;
+            default:
+                throw new IOException("Unknown journal record type: " + op);
+        }
+    }
+    
+    // ==================== SEGMENTS ====================
+    
+    /**
+     * Moves the records written so far into a segment, so that a snapshot of
+     * the state as of now can be written while new records go to a fresh
+     * file. Returns the sequence the snapshot covers.
+     * <p>
+     * Records still queued for group commit are written to the fresh file;
+     * their sequence numbers are covered by the snapshot, so replay skips them.
+     */
+    synchronized long rotate() throws IOException {
+        close();
+        synchronized (ioLock) {
+            if (batchOut != null) {
+                batchOut.close();
+                batchOut = null;
+            }
+            if (file.length() > 0) {
+                File segment = segment(sequence);
+                if (segment.exists()) {
+                    // Rotated before at this sequence: group-commit records landed after it
+                    Files.write(segment.toPath(), Files.readAllBytes(file.toPath()),
+                        StandardOpenOption.APPEND);
+                    Files.delete(file.toPath());
+                } else {
+                    Files.move(file.toPath(), segment.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        }
+        recordCount = 0;
+        return sequence;
+    }
+    
+    /**
+     * Deletes the segments holding only records up to {@code snapshotSequence},
+     * once a snapshot covering them is on disk.
+     */
+    synchronized void discardThrough(long snapshotSequence) throws IOException {
+        for (Map.Entry<Long, File> segment : segments().entrySet()) {
+            if (segment.getKey() <= snapshotSequence) {
+                Files.deleteIfExists(segment.getValue().toPath());
+            }
+        }
+    }
+    
+    private File segment(long lastSequence) {
+        return new File(file.getPath() + "." + lastSequence);
+    }
+    
+    /** Segments by the last sequence number they hold, oldest first. */
+    private Map<Long, File> segments() {
+        Map<Long, File> segments = new TreeMap<>();
+        File dir = file.getAbsoluteFile().getParentFile();
+        String prefix = file.getName() + ".";
+        File[] files = dir == null ? null : dir.listFiles((d, name) -> name.startsWith(prefix));
+        if (files == null) {
+            return segments;
+        }
+        for (File candidate : files) {
+            try {
+                segments.put(Long.parseLong(candidate.getName().substring(prefix.length())), candidate);
+            } catch (NumberFormatException e) {
+                // Not a segment
+            }
+        }
+        return segments;
+    }
+    
+    synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.out.println("Error closing journal: " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+    
+    // ==================== ENCODING ====================
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,214 @@
+package hotel;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency and throughput of the main {@link Hotel} operations.
+ * <p>
+ * Timing a call costs two {@code System.nanoTime()} reads and a few atomic
+ * increments, with no allocation. Everything can be switched off at startup
+ * with {@code -Dhotel.metrics=false}, or at runtime through
+ * {@link #setEnabled} or the MBean, after which {@link #start()} returns 0
+ * and nothing is recorded.
+ * <p>
+ * Registered MBeans:
+ * <pre>
+ *   hotel:type=Metrics,hotel="name"                      (Enabled, reset)
+ *   hotel:type=Operation,hotel="name",name=operation     (Count, percentiles, ...)
+ * </pre>
+ */
+public class HotelMetrics {
+    
+    public enum Operation {
+        MAKE_RESERVATION("makeReservation"),
+        FIND_RESERVATION("findReservationById"),
+        SAVE_DATA("saveData"),
+        LOAD_DATA("loadData");
+        
+        private final String methodName;
+        
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+        
+        public String getMethodName() { return methodName; }
+    }
+    
+    /** Management interface of the metrics switch. */
+    public interface ControlMBean {
+        boolean isEnabled();
+        
+        void setEnabled(boolean enabled);
+        
+        void reset();
+    }
+    
+    /** Management interface of one operation's statistics; times in microseconds. */
+    public interface OperationStatsMBean {
+        long getCount();
+        
+        double getThroughputPerSecond();
+        
+        double getMeanMicros();
+        
+        double getP50Micros();
+        
+        double getP90Micros();
+        
+        double getP99Micros();
+        
+        double getP999Micros();
+        
+        double getMaxMicros();
+        
+        void reset();
+    }
+    
+    /**
+     * Statistics of one operation.
+     */
+    public static class OperationStats implements OperationStatsMBean {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private volatile long since = System.nanoTime();
+        
+        @Override
+        public long getCount() { return histogram.getCount(); }
+        
+        @Override
+        public double getThroughputPerSecond() {
+            double seconds = (System.nanoTime() - since) / 1e9;
+            return seconds <= 0 ? 0 : histogram.getCount() / seconds;
+        }
+        
+        @Override
+        public double getMeanMicros() { return histogram.getMean() / 1e3; }
+        
+        @Override
+        public double getP50Micros() { return histogram.getPercentile(50) / 1e3; }
+        
+        @Override
+        public double getP90Micros() { return histogram.getPercentile(90) / 1e3; }
+        
+        @Override
+        public double getP99Micros() { return histogram.getPercentile(99) / 1e3; }
+        
+        @Override
+        public double getP999Micros() { return histogram.getPercentile(99.9) / 1e3; }
+        
+        @Override
+        public double getMaxMicros() { return histogram.getMax() / 1e3; }
+        
+        @Override
+        public void reset() {
+            histogram.reset();
+            since = System.nanoTime();
+        }
+    }
+    
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private volatile boolean enabled;
+    
+    HotelMetrics() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+        this.enabled = Boolean.parseBoolean(System.getProperty("hotel.metrics", "true"));
+    }
+    
+    // ==================== RECORDING ====================
+    
+    /**
+     * Start time to pass to {@link #record}, or 0 when metrics are off.
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+    
+    void record(Operation operation, long start) {
+        if (start != 0) {
+            stats.get(operation).histogram.record(System.nanoTime() - start);
+        }
+    }
+    
+    // ==================== ACCESS ====================
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public OperationStats get(Operation operation) {
+        return stats.get(operation);
+    }
+    
+    public void reset() {
+        for (OperationStats operationStats : stats.values()) {
+            operationStats.reset();
+        }
+    }
+    
+    /**
+     * Registers the MBeans with the platform MBean server, replacing any left
+     * by an earlier instance for the same hotel.
+     */
+    public void registerMBeans(String hotelName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String hotel = ObjectName.quote(hotelName);
+        try {
+            register(server, new ObjectName("hotel:type=Metrics,hotel=" + hotel),
+                new StandardMBean(new ControlMBean() {
+                    @Override
+                    public boolean isEnabled() { return HotelMetrics.this.isEnabled(); }
+                    
+                    @Override
+                    public void setEnabled(boolean enabled) { HotelMetrics.this.setEnabled(enabled); }
+                    
+                    @Override
+                    public void reset() { HotelMetrics.this.reset(); }
+                }, ControlMBean.class));
+            for (Operation operation : Operation.values()) {
+                register(server, new ObjectName("hotel:type=Operation,hotel=" + hotel
+                    + ",name=" + operation.getMethodName()),
+                    new StandardMBean(stats.get(operation), OperationStatsMBean.class));
+            }
+        } catch (JMException e) {
+            System.out.println("Error registering metrics MBeans: " + e.getMessage());
+        }
+    }
+    
+    private static void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(mbean, name);
+    }
+    
+    // ==================== REPORT ====================
+    
+    public void printSummary() {
+        System.out.println("\n╔══════════════════════════════════════════════════════════════════════════════╗");
+        System.out.println("║                             PERFORMANCE METRICS                              ║");
+        System.out.println("╠══════════════════════════════════════════════════════════════════════════════╣");
+        if (!enabled) {
+            System.out.printf("║ %-76s ║\n", "Metrics are switched off");
+        }
+        System.out.printf("║ %-22s %8s %8s %8s %8s %8s %8s ║\n",
+            "Operation", "Count", "Ops/s", "Mean us", "p50 us", "p99 us", "Max us");
+        for (Operation operation : Operation.values()) {
+            OperationStats s = stats.get(operation);
+            System.out.printf("║ %-22s %8d %8.1f %8.1f %8.1f %8.1f %8.1f ║\n",
+                operation.getMethodName(), s.getCount(), s.getThroughputPerSecond(),
+                s.getMeanMicros(), s.getP50Micros(), s.getP99Micros(), s.getMaxMicros());
+        }
+        System.out.println("╚══════════════════════════════════════════════════════════════════════════════╝");
+    }
+}
@@ -0,0 +1,418 @@
+package hotel;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/JSON front end for a {@link Hotel}, built on the JDK's embedded server.
+ * <p>
+ * Endpoints:
+ * <pre>
+ *   GET  /rooms?checkIn=YYYY-MM-DD&amp;checkOut=YYYY-MM-DD&amp;type=DELUXE&amp;ac=true&amp;wifi=true
+ *                                           (all optional; with dates, each room has the stay's price)
+ *   GET  /reservations?status=CONFIRMED&amp;from=YYYY-MM-DD&amp;to=YYYY-MM-DD&amp;guest=G101&amp;limit=50&amp;cursor=...
+ *                                           (all optional; one page plus nextCursor, null on the last)
+ *   POST /reservations                      (guest details, roomNumber, checkIn, checkOut, advance)
+ *   GET  /reservations/{id}
+ *   GET  /reservations/{id}/bill
+ *   POST /reservations/{id}/checkin
+ *   POST /reservations/{id}/checkout
+ *   POST /reservations/{id}/cancel
+ * </pre>
+ * Each request runs on its own virtual thread when the JDK supports them.
+ */
+public class HotelServer {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    // A booking is well under 1 KB; anything far larger is refused unread
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    
+    private final Hotel hotel;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    
+    public HotelServer(Hotel hotel, int port) throws IOException {
+        this.hotel = hotel;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/rooms", exchange -> handle(exchange, this::rooms));
+        server.createContext("/reservations", exchange -> handle(exchange, this::reservations));
+    }
+    
+    /**
+     * Uses a virtual-thread-per-request executor on JDK 21+, looked up
+     * reflectively so the project still builds and runs on older JDKs.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    // ==================== ROUTING ====================
+    
+    private interface Route {
+        Response serve(HttpExchange exchange) throws IOException;
+    }
+    
+    private static final class Response {
+        final int status;
+        final Object body;
+        
+        Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+    
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        Response response;
+        try {
+            response = route.serve(exchange);
+        } catch (DateTimeParseException e) {
+            response = error(400, "Invalid date, expected YYYY-MM-DD: " + e.getParsedString());
+        } catch (IllegalArgumentException e) {
+            response = error(400, e.getMessage());
+        } catch (UncheckedIOException e) {
+            // Applied in memory, but the journal could not make it durable
+            response = error(503, "Change not saved: " + e.getCause().getMessage());
+        } catch (RuntimeException e) {
+            // Details stay in the server log; they mean nothing to clients and may expose internals
+            System.out.println("Error handling " + exchange.getRequestMethod() + " "
+                + exchange.getRequestURI() + ": " + e);
+            e.printStackTrace(System.out);
+            response = error(500, "Internal error");
+        }
+        
+        byte[] bytes = Json.write(response.body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    private Response rooms(HttpExchange exchange) {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            return error(405, "Use GET");
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Room.RoomType type = query.containsKey("type") ? parseRoomType(query.get("type")) : null;
+        Boolean ac = query.containsKey("ac") ? Boolean.valueOf(query.get("ac")) : null;
+        Boolean wifi = query.containsKey("wifi") ? Boolean.valueOf(query.get("wifi")) : null;
+        
+        LocalDate checkIn = null;
+        LocalDate checkOut = null;
+        if (query.containsKey("checkIn") || query.containsKey("checkOut")) {
+            checkIn = LocalDate.parse(required(query, "checkIn"));
+            checkOut = LocalDate.parse(required(query, "checkOut"));
+        }
+        List<Room> rooms = hotel.findRooms(type, ac, wifi, checkIn, checkOut);
+        
+        List<Object> body = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            Map<String, Object> json = toJson(room);
+            if (checkIn != null) {
+                // Price of the whole stay at current rates
+                json.put("totalAmount", hotel.quote(room, checkIn, checkOut));
+            }
+            body.add(json);
+        }
+        return new Response(200, body);
+    }
+    
+    private Response reservations(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        // path = ["", "reservations", id?, action?]
+        
+        if (path.length == 2) {
+            if ("GET".equals(method)) {
+                return list(parseQuery(exchange.getRequestURI().getRawQuery()));
+            }
+            if (!"POST".equals(method)) {
+                return error(405, "Use GET to list or POST to create a reservation");
+            }
+            String body = readBody(exchange);
+            if (body == null) {
+                return error(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return reserve(Json.parseObject(body));
+        }
+        
+        Reservation reservation = hotel.findReservationById(path[2]);
+        if (reservation == null) {
+            return error(404, "Reservation not found: " + path[2]);
+        }
+        
+        if (path.length == 3) {
+            if (!"GET".equals(method)) {
+                return error(405, "Use GET");
+            }
+            return new Response(200, toJson(reservation));
+        }
+        if (path.length != 4) {
+            return error(404, "Unknown resource");
+        }
+        
+        String action = path[3];
+        if (action.equals("bill")) {
+            return "GET".equals(method) ? new Response(200, toBill(reservation)) : error(405, "Use GET");
+        }
+        if (!"POST".equals(method)) {
+            return error(405, "Use POST");
+        }
+        
+        boolean applied;
+        switch (action) {
+            case "checkin": applied = hotel.checkIn(reservation); break;
+            case "checkout": applied = hotel.checkOut(reservation); break;
+            case "cancel": applied = hotel.cancelReservation(reservation); break;
+            default: return error(404, "Unknown action: " + action);
+        }
+        if (!applied) {
+            // Check-in is also refused for an early arrival or an occupied room
+            String reason = action.equals("checkin") ? hotel.checkInRefusal(reservation) : null;
+            return error(409, "Cannot " + action + " " + reservation.getReservationId() + ": "
+                + (reason != null ? reason : "the reservation is " + reservation.getStatus()));
+        }
+        return new Response(200, toJson(reservation));
+    }
+    
+    /**
+     * One page of reservations in ID order; pass nextCursor back as cursor
+     * for the next page.
+     */
+    private Response list(Map<String, String> query) {
+        ReservationQuery filter = ReservationQuery.all();
+        if (query.containsKey("status")) {
+            filter = filter.withStatus(parseStatus(query.get("status")));
+        }
+        if (query.containsKey("from") || query.containsKey("to")) {
+            filter = filter.withDates(
+                query.containsKey("from") ? LocalDate.parse(query.get("from")) : null,
+                query.containsKey("to") ? LocalDate.parse(query.get("to")) : null);
+        }
+        if (query.containsKey("guest")) {
+            filter = filter.withGuest(query.get("guest"));
+        }
+        int limit = DEFAULT_PAGE_SIZE;
+        if (query.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(query.get("limit"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid limit: " + query.get("limit"));
+            }
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+        }
+        
+        ReservationPage page = hotel.findReservations(filter, query.get("cursor"), limit);
+        List<Object> reservations = new ArrayList<>(page.getReservations().size());
+        for (Reservation reservation : page.getReservations()) {
+            reservations.add(toJson(reservation));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("reservations", reservations);
+        body.put("nextCursor", page.getNextCursor());
+        return new Response(200, body);
+    }
+    
+    private Response reserve(Map<String, Object> request) {
+        Room room = hotel.getRoomByNumber((int) number(request, "roomNumber"));
+        if (room == null) {
+            return error(404, "Room not found: " + request.get("roomNumber"));
+        }
+        LocalDate checkIn = LocalDate.parse(text(request, "checkIn"));
+        LocalDate checkOut = LocalDate.parse(text(request, "checkOut"));
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("checkOut must be after checkIn");
+        }
+        double advance = request.get("advance") == null ? 0 : number(request, "advance");
+        if (!Double.isFinite(advance) || advance < 0) {
+            throw new IllegalArgumentException("advance must be zero or a positive amount");
+        }
+        // Avoid registering a guest for a request that is bound to fail
+        if (!hotel.isRoomAvailable(room, checkIn, checkOut)) {
+            return error(409, "Room " + room.getRoomNumber() + " is not available for these dates");
+        }
+        
+        // Returning guests keep their record instead of getting a new one per booking
+        Guest guest = hotel.findOrAddGuest(text(request, "name"), text(request, "phone"),
+            optionalText(request, "email"), optionalText(request, "idProof"),
+            optionalText(request, "address"));
+        
+        Reservation reservation = hotel.makeReservation(guest, room, checkIn, checkOut, advance);
+        if (reservation == null) {
+            return error(409, "Room " + room.getRoomNumber() + " is not available for these dates");
+        }
+        return new Response(201, toJson(reservation));
+    }
+    
+    // ==================== JSON MAPPING ====================
+    
+    private static Map<String, Object> toJson(Room room) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("roomNumber", room.getRoomNumber());
+        json.put("type", room.getRoomType().name());
+        json.put("pricePerNight", room.getPricePerNight());
+        json.put("ac", room.hasAC());
+        json.put("wifi", room.hasWifi());
+        json.put("available", room.isAvailable());
+        return json;
+    }
+    
+    private static Map<String, Object> toJson(Reservation reservation) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("reservationId", reservation.getReservationId());
+        json.put("status", reservation.getStatus().name());
+        json.put("guestId", reservation.getGuest().getGuestId());
+        json.put("guestName", reservation.getGuest().getName());
+        json.put("roomNumber", reservation.getRoom().getRoomNumber());
+        json.put("roomType", reservation.getRoom().getRoomType().name());
+        json.put("checkIn", reservation.getCheckInDate().toString());
+        json.put("checkOut", reservation.getCheckOutDate().toString());
+        json.put("nights", reservation.getNumberOfNights());
+        json.put("totalAmount", reservation.getTotalAmount());
+        json.put("advancePaid", reservation.getAdvancePaid());
+        json.put("balance", reservation.getBalanceAmount());
+        return json;
+    }
+    
+    private static Map<String, Object> toBill(Reservation reservation) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("reservationId", reservation.getReservationId());
+        json.put("guestName", reservation.getGuest().getName());
+        json.put("roomNumber", reservation.getRoom().getRoomNumber());
+        json.put("nights", reservation.getNumberOfNights());
+        json.put("roomCharges", reservation.getTotalAmount());
+        json.put("gst", reservation.getGst());
+        json.put("serviceTax", reservation.getServiceTax());
+        json.put("grandTotal", reservation.getGrandTotal());
+        json.put("advancePaid", reservation.getAdvancePaid());
+        json.put("amountDue", reservation.getGrandTotal() - reservation.getAdvancePaid());
+        return json;
+    }
+    
+    private static Response error(int status, String message) {
+        return new Response(status, Collections.singletonMap("error", message));
+    }
+    
+    // ==================== REQUEST PARSING ====================
+    
+    /**
+     * The request body, or null if it is over {@link #MAX_BODY_BYTES}; a
+     * declared Content-Length that large is refused without reading at all.
+     * The stream is left open: closing it would first drain what is left of
+     * the body, so the exchange closes it once the response has been sent.
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+        try {
+            if (declared != null && Long.parseLong(declared.trim()) > MAX_BODY_BYTES) {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid Content-Length: " + declared);
+        }
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        return body.length > MAX_BODY_BYTES ? null : new String(body, StandardCharsets.UTF_8);
+    }
+    
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                      URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+    
+    private static Reservation.Status parseStatus(String value) {
+        try {
+            return Reservation.Status.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status: " + value);
+        }
+    }
+    
+    private static Room.RoomType parseRoomType(String value) {
+        try {
+            return Room.RoomType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown room type: " + value);
+        }
+    }
+    
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing query parameter: " + name);
+        }
+        return value;
+    }
+    
+    private static String text(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (!(value instanceof String) || ((String) value).isEmpty()) {
+            throw new IllegalArgumentException("Missing or invalid field: " + field);
+        }
+        return (String) value;
+    }
+    
+    private static String optionalText(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        return value == null ? "" : value.toString();
+    }
+    
+    private static double number(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("Missing or invalid field: " + field);
+        }
+        return (Double) value;
+    }
+}
@@ -0,0 +1,403 @@
+package hotel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator that drives one {@link Hotel} from several threads with a
+ * weighted mix of front-desk operations, then reports throughput, latency
+ * percentiles per operation, and any broken invariants (a room booked twice
+ * for the same night, or a booking the hotel has lost track of).
+ * <p>
+ * Check-in dates are today plus an exponentially distributed lead time,
+ * stays are geometrically distributed, and room types are drawn by weight.
+ * The hotel runs on fresh data in a temporary directory, journal included.
+ * <p>
+ * Usage: {@code java -cp bin hotel.HotelSimulator [key=value ...]}
+ * <pre>
+ *   threads=4          worker threads
+ *   seconds=20         measured run time, after warmup=5 seconds
+ *   rooms=200          rooms, split across types like the default hotel
+ *   guests=5000        distinct returning guests
+ *   mix=search:40,reserve:25,checkin:10,checkout:10,cancel:5,bill:10
+ *   types=SINGLE:30,DOUBLE:40,DELUXE:20,SUITE:10   room types searched and booked
+ *   lead=21            mean days between booking and check-in
+ *   stay=2.5           mean nights per stay
+ *   groupCommit=0      group commit window in ms; 0 writes each change to the
+ *                      journal and flushes it to the OS without an fsync
+ * </pre>
+ */
+class HotelSimulator {
+    
+    enum Operation {
+        SEARCH, RESERVE, CHECK_IN, CHECK_OUT, CANCEL, BILL
+    }
+    
+    private static final int MAX_LEAD_DAYS = 365;
+    private static final int MAX_NIGHTS = 30;
+    // Recent bookings that check-in, check-out, cancel and bill pick from
+    private static final int RECENT = 1 << 14;
+    
+    private final Hotel hotel;
+    private final int guestCount;
+    private final double[] mix;
+    private final double[] typeWeights;
+    private final double meanLeadDays;
+    private final double meanNights;
+    
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class);
+    private final Queue<Reservation> booked = new ConcurrentLinkedQueue<>();
+    private final AtomicReferenceArray<Reservation> recent = new AtomicReferenceArray<>(RECENT);
+    private final AtomicLong bookings = new AtomicLong();
+    private final LocalDate today = LocalDate.now();
+    private volatile boolean running = true;
+    
+    HotelSimulator(Hotel hotel, int guestCount, double[] mix, double[] typeWeights,
+                   double meanLeadDays, double meanNights) {
+        this.hotel = hotel;
+        this.guestCount = guestCount;
+        this.mix = mix;
+        this.typeWeights = typeWeights;
+        this.meanLeadDays = meanLeadDays;
+        this.meanNights = meanNights;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            rejected.put(operation, new LongAdder());
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int roomCount = Integer.parseInt(options.getOrDefault("rooms", "200"));
+        int guestCount = Integer.parseInt(options.getOrDefault("guests", "5000"));
+        double[] mix = weights(options.getOrDefault("mix",
+            "search:40,reserve:25,checkin:10,checkout:10,cancel:5,bill:10"), Operation.class);
+        double[] types = weights(options.getOrDefault("types",
+            "SINGLE:30,DOUBLE:40,DELUXE:20,SUITE:10"), Room.RoomType.class);
+        double lead = Double.parseDouble(options.getOrDefault("lead", "21"));
+        double stay = Double.parseDouble(options.getOrDefault("stay", "2.5"));
+        long groupCommit = Long.parseLong(options.getOrDefault("groupCommit", "0"));
+        
+        File dir = Files.createTempDirectory("hotel-sim").toFile();
+        try {
+            Hotel hotel = createHotel(dir, roomCount);
+            if (groupCommit > 0) {
+                hotel.enableGroupCommit(groupCommit, 256);
+            }
+            System.out.printf("%d threads, %d rooms, %d guests, %ds warmup + %ds, group commit %s%n",
+                threads, roomCount, guestCount, warmup, seconds,
+                groupCommit > 0 ? groupCommit + " ms" : "off");
+            
+            HotelSimulator simulator = new HotelSimulator(hotel, guestCount, mix, types, lead, stay);
+            simulator.run(threads, warmup, seconds);
+        } finally {
+            deleteAll(dir);
+        }
+    }
+    
+    /**
+     * Runs the workers for the warmup, clears the statistics, runs them for
+     * the measured time and prints the report.
+     */
+    void run(int threads, int warmupSeconds, int seconds) throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (running) {
+                        step(ThreadLocalRandom.current());
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            }, "hotel-sim-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        
+        Thread.sleep(warmupSeconds * 1000L);
+        for (Operation operation : Operation.values()) {
+            latencies.get(operation).reset();
+            rejected.get(operation).reset();
+        }
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        running = false;
+        finished.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        
+        printReport(elapsed);
+        printViolations(checkInvariants());
+    }
+    
+    // ==================== WORKLOAD ====================
+    
+    private void step(ThreadLocalRandom random) {
+        Operation operation = Operation.values()[pick(mix, random)];
+        long start = System.nanoTime();
+        boolean done;
+        switch (operation) {
+            case SEARCH:
+                LocalDate checkIn = checkInDate(random);
+                hotel.getAvailableRoomsByType(roomType(random), checkIn, checkIn.plusDays(nights(random)));
+                done = true;
+                break;
+            case RESERVE:
+                done = reserve(random);
+                break;
+            case CHECK_IN:
+                done = pickBooking(random, Reservation.Status.CONFIRMED, hotel::checkIn);
+                break;
+            case CHECK_OUT:
+                done = pickBooking(random, Reservation.Status.CHECKED_IN, hotel::checkOut);
+                break;
+            case CANCEL:
+                done = pickBooking(random, Reservation.Status.CONFIRMED, hotel::cancelReservation);
+                break;
+            case BILL:
+                done = pickBooking(random, null, reservation -> {
+                    Reservation found = hotel.findReservationById(reservation.getReservationId());
+                    return found != null && !found.generateBill().isEmpty();
+                });
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+        latencies.get(operation).record(System.nanoTime() - start);
+        if (!done) {
+            rejected.get(operation).increment();
+        }
+    }
+    
+    /**
+     * Books a random free room of the chosen type, as the front desk would
+     * after a search. Returns false if none was free or another thread took it.
+     */
+    private boolean reserve(ThreadLocalRandom random) {
+        LocalDate checkIn = checkInDate(random);
+        LocalDate checkOut = checkIn.plusDays(nights(random));
+        List<Room> free = hotel.getAvailableRoomsByType(roomType(random), checkIn, checkOut);
+        if (free.isEmpty()) {
+            return false;
+        }
+        int guest = random.nextInt(guestCount);
+        Guest guestRecord = hotel.findOrAddGuest("Guest " + guest, "9" + (100_000_000 + guest),
+            "guest" + guest + "@example.com", "SIM" + guest, "Address " + guest % 100);
+        Room room = free.get(random.nextInt(free.size()));
+        Reservation reservation = hotel.makeReservation(guestRecord, room, checkIn, checkOut, 0);
+        if (reservation == null) {
+            return false;
+        }
+        booked.add(reservation);
+        recent.set((int) (bookings.getAndIncrement() & (RECENT - 1)), reservation);
+        return true;
+    }
+    
+    private interface Action {
+        boolean apply(Reservation reservation);
+    }
+    
+    /**
+     * Applies the action to a recent booking in the given state (any state
+     * if null). Returns false if the one picked was not in that state.
+     */
+    private boolean pickBooking(ThreadLocalRandom random, Reservation.Status status, Action action) {
+        long made = bookings.get();
+        if (made == 0) {
+            return false;
+        }
+        Reservation reservation = recent.get(random.nextInt((int) Math.min(made, RECENT)));
+        if (reservation == null || (status != null && reservation.getStatus() != status)) {
+            return false;
+        }
+        return action.apply(reservation);
+    }
+    
+    private LocalDate checkInDate(ThreadLocalRandom random) {
+        // Exponential lead time: most bookings are for the coming days or weeks
+        long lead = (long) (-meanLeadDays * Math.log(1 - random.nextDouble()));
+        return today.plusDays(Math.min(lead, MAX_LEAD_DAYS));
+    }
+    
+    private int nights(ThreadLocalRandom random) {
+        // Geometric stay length with the given mean, at least one night
+        double p = 1 / Math.max(1, meanNights);
+        int nights = 1;
+        while (nights < MAX_NIGHTS && random.nextDouble() >= p) {
+            nights++;
+        }
+        return nights;
+    }
+    
+    private Room.RoomType roomType(ThreadLocalRandom random) {
+        return Room.RoomType.values()[pick(typeWeights, random)];
+    }
+    
+    private static int pick(double[] weights, ThreadLocalRandom random) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+    
+    // ==================== INVARIANTS ====================
+    
+    /**
+     * Checks every booking the simulator made against the hotel. Runs after
+     * the workers have stopped.
+     */
+    List<String> checkInvariants() {
+        List<String> violations = new ArrayList<>();
+        Map<Integer, List<Reservation>> activeByRoom = new HashMap<>();
+        for (Reservation reservation : booked) {
+            if (hotel.findReservationById(reservation.getReservationId()) == null) {
+                violations.add(reservation.getReservationId() + " is missing from the hotel");
+            }
+            Reservation.Status status = reservation.getStatus();
+            if (status == Reservation.Status.CONFIRMED || status == Reservation.Status.CHECKED_IN) {
+                activeByRoom.computeIfAbsent(reservation.getRoom().getRoomNumber(),
+                    k -> new ArrayList<>()).add(reservation);
+                if (hotel.isRoomAvailable(reservation.getRoom(), reservation.getCheckInDate(),
+                        reservation.getCheckOutDate())) {
+                    violations.add(reservation.getReservationId() + " is active but room "
+                        + reservation.getRoom().getRoomNumber() + " shows as free for its nights");
+                }
+            }
+        }
+        
+        for (Map.Entry<Integer, List<Reservation>> entry : activeByRoom.entrySet()) {
+            List<Reservation> stays = entry.getValue();
+            stays.sort(Comparator.comparing(Reservation::getCheckInDate));
+            for (int i = 1; i < stays.size(); i++) {
+                Reservation stay = stays.get(i);
+                if (stay.getCheckInDate().isBefore(stays.get(i - 1).getCheckOutDate())) {
+                    violations.add("Room " + entry.getKey() + " double-booked: "
+                        + stays.get(i - 1).getReservationId() + " and " + stay.getReservationId());
+                }
+            }
+        }
+        return violations;
+    }
+    
+    // ==================== REPORT ====================
+    
+    private void printReport(double elapsed) {
+        long total = 0;
+        System.out.printf("%n%-10s %10s %9s %9s %9s %9s %9s %9s%n", "Operation", "Ops/s",
+            "Rejected", "Mean(us)", "p50(us)", "p99(us)", "p99.9(us)", "Max(us)");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            long count = histogram.getCount();
+            total += count;
+            System.out.printf("%-10s %10.0f %9d %9.1f %9.1f %9.1f %9.1f %9.1f%n", operation,
+                count / elapsed, rejected.get(operation).sum(), histogram.getMean() / 1e3,
+                histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+                histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3);
+        }
+        System.out.printf("%-10s %10.0f%n", "TOTAL", total / elapsed);
+        System.out.printf("Bookings: %d made in total, %.0f/s while measured%n", bookings.get(),
+            (latencies.get(Operation.RESERVE).getCount() - rejected.get(Operation.RESERVE).sum())
+                / elapsed);
+    }
+    
+    private static void printViolations(List<String> violations) {
+        if (violations.isEmpty()) {
+            System.out.println("Invariants: OK");
+            return;
+        }
+        System.out.println("Invariants: " + violations.size() + " VIOLATIONS");
+        for (String violation : violations.subList(0, Math.min(20, violations.size()))) {
+            System.out.println("  " + violation);
+        }
+    }
+    
+    // ==================== SETUP ====================
+    
+    /**
+     * Opens a hotel in {@code dir} with the given number of rooms, split
+     * across the types in the default hotel's proportions (5:8:6:3).
+     */
+    static Hotel createHotel(File dir, int roomCount) throws IOException {
+        int[] shares = {5, 8, 6, 3};
+        List<Room> rooms = new ArrayList<>(roomCount);
+        for (int i = 0; i < roomCount; i++) {
+            int slot = i % 22;
+            int type = 0;
+            while (slot >= shares[type]) {
+                slot -= shares[type];
+                type++;
+            }
+            rooms.add(new Room(1000 + i, Room.RoomType.values()[type], type > 0 || i % 2 == 0, type > 0));
+        }
+        HotelCodec.write(new HotelCodec.Snapshot(rooms, Collections.emptyList(), Collections.emptyList(),
+            1000, 100, 0), new File(dir, Hotel.DATA_FILE));
+        return new Hotel("Simulated Hotel", dir);
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+    
+    /**
+     * Parses "name:weight,..." into weights indexed by enum ordinal; names
+     * match ignoring case and underscores, and missing ones weigh 0.
+     */
+    private static <E extends Enum<E>> double[] weights(String spec, Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        double[] weights = new double[constants.length];
+        for (String part : spec.split(",")) {
+            String[] pair = part.split(":");
+            String name = pair[0].trim().replace("_", "");
+            boolean matched = false;
+            for (E constant : constants) {
+                if (constant.name().replace("_", "").equalsIgnoreCase(name)) {
+                    weights[constant.ordinal()] = Double.parseDouble(pair[1].trim());
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName() + ": " + pair[0]);
+            }
+        }
+        return weights;
+    }
+    
+    private static void deleteAll(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,297 @@
+package hotel;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An immutable, point-in-time view of the hotel's rooms and reservations,
+ * for reports that must not block bookings or see them half-applied.
+ * <p>
+ * {@link Hotel#getView()} returns the current version in O(1). Every change
+ * publishes a new version that shares all but a few trie nodes with the
+ * previous one ({@link VersionedArray}); a version no reader holds any more
+ * is simply garbage collected. The collections returned here are read-only
+ * views of the version and are iterated without copying.
+ * <p>
+ * Reservations are frozen copies: their status and payments stay as they
+ * were when the version was published. Rooms are created on demand with the
+ * version's availability. Guest details are shared with the live records.
+ * <p>
+ * A version also lists the guests held in memory, so a checkpoint can take
+ * one under the persistence lock and encode it afterwards, off the lock.
+ */
+public final class HotelView {
+    
+    private final long version;
+    private final RoomStore store;
+    private final int roomCount;
+    // Boolean.TRUE at the store slot of each occupied room
+    private final VersionedArray<Boolean> occupied;
+    // Frozen copies of the in-memory reservations, by reservation number
+    private final VersionedArray<Reservation> reservations;
+    private final VersionedArray<Reservation> active;
+    // The in-memory guest records, by guest number
+    private final VersionedArray<Guest> guests;
+    private final SnapshotHistory history;
+    
+    HotelView(long version, RoomStore store, int roomCount, VersionedArray<Boolean> occupied,
+              VersionedArray<Reservation> reservations, VersionedArray<Reservation> active,
+              VersionedArray<Guest> guests, SnapshotHistory history) {
+        this.version = version;
+        this.store = store;
+        this.roomCount = roomCount;
+        this.occupied = occupied;
+        this.reservations = reservations;
+        this.active = active;
+        this.guests = guests;
+        this.history = history;
+    }
+    
+    /**
+     * The next version, with the reservation's current state and the current
+     * availability of its room. Called with the room's lock held, so the two
+     * always match.
+     */
+    HotelView with(Reservation reservation) {
+        int number = Hotel.idNumber(reservation.getReservationId(), "RES");
+        if (number < 0) {
+            return this;
+        }
+        Reservation frozen = reservation.copy();
+        boolean isActive = frozen.getStatus() == Reservation.Status.CONFIRMED
+            || frozen.getStatus() == Reservation.Status.CHECKED_IN;
+        int slot = store.slotOf(frozen.getRoom().getRoomNumber());
+        VersionedArray<Boolean> rooms = slot < 0 ? occupied
+            : occupied.with(slot, store.hasFlag(slot, RoomStore.FLAG_AVAILABLE) ? null : Boolean.TRUE);
+        return new HotelView(version + 1, store, roomCount, rooms, reservations.with(number, frozen),
+            active.with(number, isActive ? frozen : null), guests, history);
+    }
+    
+    /**
+     * The next version, with a guest newly held in memory.
+     */
+    HotelView withGuest(Guest guest) {
+        int number = Hotel.idNumber(guest.getGuestId(), "G");
+        if (number < 0) {
+            return this;
+        }
+        return new HotelView(version + 1, store, roomCount, occupied, reservations, active,
+            guests.with(number, guest), history);
+    }
+    
+    /**
+     * The guests and reservations held in memory in this version, archived
+     * ones excluded, for writing a snapshot.
+     */
+    Collection<Guest> liveGuests() {
+        return collection(guests);
+    }
+    
+    Collection<Reservation> liveReservations() {
+        return collection(reservations);
+    }
+    
+    private static <T> Collection<T> collection(VersionedArray<T> elements) {
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return elements.iterator();
+            }
+            
+            @Override
+            public int size() {
+                return elements.size();
+            }
+        };
+    }
+    
+    // ==================== ROOMS ====================
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public int getRoomCount() {
+        return roomCount;
+    }
+    
+    public int getAvailableRoomCount() {
+        return roomCount - occupied.size();
+    }
+    
+    /** All rooms, in the order they were added, as of this version. */
+    public List<Room> getRooms() {
+        return new Rooms();
+    }
+    
+    private final class Rooms extends AbstractList<Room> implements RandomAccess {
+        @Override
+        public Room get(int slot) {
+            if (slot < 0 || slot >= roomCount) {
+                throw new IndexOutOfBoundsException("Room " + slot + " of " + roomCount);
+            }
+            Room room = new Room(store.number(slot), store.type(slot),
+                store.hasFlag(slot, RoomStore.FLAG_AC), store.hasFlag(slot, RoomStore.FLAG_WIFI));
+            room.setAvailable(occupied.get(slot) == null);
+            return room;
+        }
+        
+        @Override
+        public int size() {
+            return roomCount;
+        }
+    }
+    
+    // ==================== RESERVATIONS ====================
+    
+    /**
+     * All reservations, archived ones included, ordered by ID. Archived
+     * records are decoded as the iteration reaches them.
+     */
+    public Collection<Reservation> getReservations() {
+        return new AbstractCollection<Reservation>() {
+            @Override
+            public Iterator<Reservation> iterator() {
+                return new Merged(0);
+            }
+            
+            @Override
+            public int size() {
+                return history.reservationCount() + reservations.size();
+            }
+        };
+    }
+    
+    /** Confirmed and checked-in reservations, ordered by ID. */
+    public Collection<Reservation> getActiveReservations() {
+        return new AbstractCollection<Reservation>() {
+            @Override
+            public Iterator<Reservation> iterator() {
+                return active.iterator();
+            }
+            
+            @Override
+            public int size() {
+                return active.size();
+            }
+        };
+    }
+    
+    /** The reservation with this ID as of this version, or null. */
+    public Reservation findReservation(String reservationId) {
+        if (reservationId == null) {
+            return null;
+        }
+        int number = Hotel.idNumber(reservationId.trim().toUpperCase(Locale.ROOT), "RES");
+        if (number < 0) {
+            return null;
+        }
+        Reservation reservation = reservations.get(number);
+        return reservation != null ? reservation : history.findReservation(number);
+    }
+    
+    /**
+     * Up to {@code pageSize} reservations matching the query with IDs after
+     * the cursor, and the cursor for the next page. The cursor is the ID of
+     * the last reservation returned, so paging stays in step while bookings
+     * are added; null starts from the first reservation.
+     * <p>
+     * Both the in-memory trie and the archive index are entered at the
+     * cursor, and matches are read one at a time, so a page costs the same
+     * however far into the listing it is and nothing else is copied.
+     * Queries for confirmed or checked-in reservations only walk the active
+     * ones.
+     */
+    public ReservationPage findReservations(ReservationQuery query, String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        int after = -1;
+        if (cursor != null && !cursor.isEmpty()) {
+            after = Hotel.idNumber(cursor.trim().toUpperCase(Locale.ROOT), "RES");
+            if (after < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            if (after == Integer.MAX_VALUE) {
+                // Nothing can follow the largest number, and after + 1 would wrap
+                return new ReservationPage(new ArrayList<>(), null);
+            }
+        }
+        Iterator<Reservation> matches = query.activeOnly()
+            ? active.iterator(after + 1) : new Merged(after + 1);
+        
+        List<Reservation> page = new ArrayList<>(Math.min(pageSize, 256));
+        while (matches.hasNext()) {
+            Reservation reservation = matches.next();
+            if (!query.matches(reservation)) {
+                continue;
+            }
+            if (page.size() == pageSize) {
+                // One more match exists, so there is a next page
+                return new ReservationPage(page, page.get(pageSize - 1).getReservationId());
+            }
+            page.add(reservation);
+        }
+        return new ReservationPage(page, null);
+    }
+    
+    /**
+     * Merges the archive and the in-memory reservations, both sorted by ID,
+     * starting at the first ID numbered {@code from} or above.
+     */
+    private final class Merged implements Iterator<Reservation> {
+        private final Iterator<Reservation> live;
+        private Reservation nextLive;
+        private int archived;
+        private Reservation nextArchived;
+        
+        Merged(int from) {
+            this.live = reservations.iterator(from);
+            this.nextLive = live.hasNext() ? live.next() : null;
+            this.archived = history.reservationIndexAfter(from - 1);
+            advanceArchived();
+        }
+        
+        private void advanceArchived() {
+            nextArchived = null;
+            while (nextArchived == null && archived < history.reservationCount()) {
+                nextArchived = history.reservationAt(archived++);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return nextLive != null || nextArchived != null;
+        }
+        
+        @Override
+        public Reservation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (nextArchived != null && (nextLive == null || number(nextArchived) < number(nextLive))) {
+                Reservation result = nextArchived;
+                advanceArchived();
+                return result;
+            }
+            Reservation result = nextLive;
+            // An archived copy of the same reservation is superseded by the live one
+            if (nextArchived != null && number(nextArchived) == number(result)) {
+                advanceArchived();
+            }
+            nextLive = live.hasNext() ? live.next() : null;
+            return result;
+        }
+        
+        private int number(Reservation reservation) {
+            return Hotel.idNumber(reservation.getReservationId(), "RES");
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package hotel;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Nightly base rates per room type and date, for weekends, seasons and
+ * events. Without any changes every night costs the type's standard price.
+ * <p>
+ * Each type keeps its rates (in paise) for a window of dates together with
+ * their running totals, so the price of any stay is the difference of two
+ * totals: O(1) however long the stay. A quote outside the window grows it
+ * (or, once it would pass {@link #MAX_DAYS}, moves it to the stay) and
+ * replays every change made so far onto the new dates. Changes rebuild the
+ * affected type's arrays and swap them in, so quotes never lock and always
+ * see one consistent table.
+ */
+public class RateCalendar {
+    
+    /** Most dates the window covers at once. */
+    public static final int MAX_DAYS = 100 * 366;
+    
+    /** Dates added beyond a stay when the window grows, so nearby stays fit too. */
+    private static final int GROWTH_DAYS = 366;
+    
+    /** Rates and running totals for one room type; never modified once published. */
+    private static final class Table {
+        final long[] rates;
+        // prefix[i] = sum of rates[0 .. i-1]
+        final long[] prefix;
+        
+        Table(long[] rates) {
+            this.rates = rates;
+            this.prefix = new long[rates.length + 1];
+            for (int i = 0; i < rates.length; i++) {
+                prefix[i + 1] = prefix[i] + rates[i];
+            }
+        }
+    }
+    
+    /** The dates covered and each type's table for them; never modified once published. */
+    private static final class Window {
+        final long startDay;
+        final int days;
+        final Table[] tables;
+        
+        Window(long startDay, int days, Table[] tables) {
+            this.startDay = startDay;
+            this.days = days;
+            this.tables = tables;
+        }
+        
+        boolean covers(long fromDay, long toDay) {
+            return fromDay >= startDay && toDay <= startDay + days;
+        }
+        
+        int clamp(long epochDay) {
+            return (int) Math.max(0, Math.min(days, epochDay - startDay));
+        }
+    }
+    
+    /** One change as made, kept to apply again when the window moves. */
+    private static final class Rule {
+        final Room.RoomType type;
+        final long fromDay;
+        final long toDay;
+        final Set<DayOfWeek> on;
+        final RateChange change;
+        
+        Rule(Room.RoomType type, long fromDay, long toDay, Set<DayOfWeek> on, RateChange change) {
+            this.type = type;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.on = on;
+            this.change = change;
+        }
+    }
+    
+    private volatile Window window;
+    // Every change so far, in order; guarded by this
+    private final List<Rule> rules = new ArrayList<>();
+    
+    /**
+     * @param start first date with its own rate
+     * @param days  number of dates covered from {@code start} until a quote
+     *              outside them moves the window
+     */
+    public RateCalendar(LocalDate start, int days) {
+        if (days < 1 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_DAYS);
+        }
+        this.window = build(start.toEpochDay(), days);
+    }
+    
+    // ==================== QUOTES ====================
+    
+    /**
+     * Base price of the nights [checkIn, checkOut) in a room of this type.
+     */
+    public double quote(Room.RoomType type, LocalDate checkIn, LocalDate checkOut) {
+        long from = checkIn.toEpochDay();
+        long to = checkOut.toEpochDay();
+        if (to <= from) {
+            return 0;
+        }
+        Window current = window;
+        if (!current.covers(from, to)) {
+            current = cover(from, to);
+        }
+        Table table = current.tables[type.ordinal()];
+        return (table.prefix[current.clamp(to)] - table.prefix[current.clamp(from)]) / 100.0;
+    }
+    
+    /**
+     * Price of the stay in this room: the type's rates plus the room's AC
+     * and WiFi surcharges for each night.
+     */
+    public double quote(Room room, LocalDate checkIn, LocalDate checkOut) {
+        long nights = Math.max(0, ChronoUnit.DAYS.between(checkIn, checkOut));
+        double surcharge = room.getPricePerNight() - room.getRoomType().getPricePerNight();
+        return quote(room.getRoomType(), checkIn, checkOut) + nights * surcharge;
+    }
+    
+    /**
+     * Base rate of one night in a room of this type.
+     */
+    public double rateOn(Room.RoomType type, LocalDate date) {
+        return quote(type, date, date.plusDays(1));
+    }
+    
+    // ==================== CHANGES ====================
+    
+    /**
+     * Sets the nightly base rate of [from, to) for one type, or every type
+     * if {@code type} is null.
+     */
+    public synchronized void setRate(Room.RoomType type, LocalDate from, LocalDate to, double rate) {
+        long paise = Math.round(rate * 100);
+        update(type, from, to, EnumSet.allOf(DayOfWeek.class), (current, standard) -> paise);
+    }
+    
+    /**
+     * Multiplies the rates of [from, to) by {@code factor} on the given days
+     * of the week (every day if none are given), for one type or every type
+     * if {@code type} is null. E.g. weekends at 1.2 or a low season at 0.8.
+     */
+    public synchronized void scaleRates(Room.RoomType type, LocalDate from, LocalDate to, double factor,
+                                        DayOfWeek... daysOfWeek) {
+        Set<DayOfWeek> on = daysOfWeek.length == 0
+            ? EnumSet.allOf(DayOfWeek.class) : EnumSet.of(daysOfWeek[0], daysOfWeek);
+        update(type, from, to, on, (current, standard) -> Math.round(current * factor));
+    }
+    
+    /**
+     * Restores the standard price for [from, to).
+     */
+    public synchronized void resetRates(Room.RoomType type, LocalDate from, LocalDate to) {
+        update(type, from, to, EnumSet.allOf(DayOfWeek.class), (current, standard) -> standard);
+    }
+    
+    private interface RateChange {
+        long apply(long current, long standard);
+    }
+    
+    private void update(Room.RoomType type, LocalDate from, LocalDate to, Set<DayOfWeek> on,
+                        RateChange change) {
+        Rule rule = new Rule(type, from.toEpochDay(), to.toEpochDay(), on, change);
+        rules.add(rule);
+        Window current = window;
+        long[][] rates = new long[current.tables.length][];
+        apply(rule, current, rates);
+        window = publish(current, rates);
+    }
+    
+    // ==================== WINDOW ====================
+    
+    /**
+     * Moves the window to cover the nights [fromDay, toDay): grows it with a
+     * year to spare on the side of the stay, or, if that would pass
+     * {@link #MAX_DAYS}, starts it afresh a year before the stay.
+     */
+    private synchronized Window cover(long fromDay, long toDay) {
+        Window current = window;
+        if (current.covers(fromDay, toDay)) {
+            return current;
+        }
+        if (toDay - fromDay > MAX_DAYS - 2 * GROWTH_DAYS) {
+            throw new IllegalArgumentException("Cannot price a stay of more than "
+                + (MAX_DAYS - 2 * GROWTH_DAYS) + " nights");
+        }
+        long first = Math.min(current.startDay, fromDay - GROWTH_DAYS);
+        long end = Math.max(current.startDay + current.days, toDay + GROWTH_DAYS);
+        if (end - first > MAX_DAYS) {
+            first = fromDay - GROWTH_DAYS;
+            end = Math.min(first + Math.max(current.days, toDay + GROWTH_DAYS - first), first + MAX_DAYS);
+        }
+        window = build(first, (int) (end - first));
+        return window;
+    }
+    
+    /**
+     * Standard rates for the dates from {@code startDay}, with every change
+     * so far applied in order.
+     */
+    private Window build(long startDay, int days) {
+        Room.RoomType[] types = Room.RoomType.values();
+        long[][] rates = new long[types.length][];
+        for (Room.RoomType type : types) {
+            rates[type.ordinal()] = new long[days];
+            Arrays.fill(rates[type.ordinal()], standardRate(type));
+        }
+        Window empty = new Window(startDay, days, new Table[types.length]);
+        for (Rule rule : rules) {
+            apply(rule, empty, rates);
+        }
+        return publish(empty, rates);
+    }
+    
+    /**
+     * Applies the rule to the window's dates in {@code rates}, copying a
+     * type's published rates into it the first time the type changes.
+     */
+    private static void apply(Rule rule, Window window, long[][] rates) {
+        int first = window.clamp(rule.fromDay);
+        int last = window.clamp(rule.toDay);
+        for (Room.RoomType each : Room.RoomType.values()) {
+            if (rule.type != null && each != rule.type) {
+                continue;
+            }
+            long standard = standardRate(each);
+            if (rates[each.ordinal()] == null) {
+                rates[each.ordinal()] = window.tables[each.ordinal()].rates.clone();
+            }
+            long[] typeRates = rates[each.ordinal()];
+            for (int i = first; i < last; i++) {
+                if (rule.on.contains(dayOfWeek(window.startDay + i))) {
+                    typeRates[i] = rule.change.apply(typeRates[i], standard);
+                }
+            }
+        }
+    }
+    
+    /**
+     * The window with new tables for the types whose rates changed and the
+     * old ones for the rest.
+     */
+    private static Window publish(Window window, long[][] rates) {
+        Table[] tables = window.tables.clone();
+        for (int i = 0; i < rates.length; i++) {
+            if (rates[i] != null) {
+                tables[i] = new Table(rates[i]);
+            }
+        }
+        return new Window(window.startDay, window.days, tables);
+    }
+    
+    // ==================== RATE FILE ====================
+    
+    /**
+     * Applies rate rules from a text file, one per line:
+     * <pre>
+     *   # type  from        to (exclusive)  rate or xFactor  [days of week]
+     *   ALL     2026-01-01  2027-01-01      x1.2             SAT SUN
+     *   ALL     2026-12-20  2027-01-05      x1.5
+     *   DELUXE  2026-11-14  2026-11-16      9000
+     * </pre>
+     * Rules apply in order. Bad lines are reported and skipped.
+     */
+    public void load(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    applyRule(line.split("[\\s,]+"));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    System.out.println("Error in " + file + " line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void applyRule(String[] fields) {
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("expected: type from to rate [days]");
+        }
+        Room.RoomType type = fields[0].equalsIgnoreCase("ALL")
+            ? null : Room.RoomType.valueOf(fields[0].toUpperCase(Locale.ROOT));
+        LocalDate from = LocalDate.parse(fields[1]);
+        LocalDate to = LocalDate.parse(fields[2]);
+        String amount = fields[3];
+        if (amount.startsWith("x") || amount.startsWith("X")) {
+            DayOfWeek[] on = new DayOfWeek[fields.length - 4];
+            for (int i = 4; i < fields.length; i++) {
+                on[i - 4] = dayOfWeek(fields[i]);
+            }
+            scaleRates(type, from, to, Double.parseDouble(amount.substring(1)), on);
+        } else {
+            if (fields.length > 4) {
+                throw new IllegalArgumentException("days of week only apply to xFactor rules");
+            }
+            setRate(type, from, to, Double.parseDouble(amount));
+        }
+    }
+    
+    private static DayOfWeek dayOfWeek(String name) {
+        String prefix = name.toUpperCase(Locale.ROOT);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (prefix.length() >= 3 && day.name().startsWith(prefix)) {
+                return day;
+            }
+        }
+        throw new IllegalArgumentException("Unknown day of week: " + name);
+    }
+    
+    // ==================== HELPERS ====================
+    
+    private static DayOfWeek dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return DayOfWeek.of((int) Math.floorMod(epochDay + 3, 7L) + 1);
+    }
+    
+    private static long standardRate(Room.RoomType type) {
+        return Math.round(type.getPricePerNight() * 100);
+    }
+}
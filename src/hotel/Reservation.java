@@ -9,6 +9,8 @@ import java.time.temporal.ChronoUnit;
  */
 public class Reservation implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final double GST_RATE = 0.12;
+    private static final double SERVICE_TAX_RATE = 0.05;
     
     public enum Status {
         CONFIRMED, CHECKED_IN, CHECKED_OUT, CANCELLED
@@ -19,9 +21,9 @@ public class Reservation implements Serializable {
     private Room room;
     private LocalDate checkInDate;
     private LocalDate checkOutDate;
-    private Status status;
+    private volatile Status status;
     private double totalAmount;
-    private double advancePaid;
+    private volatile double advancePaid;
     private LocalDate bookingDate;
     
     public Reservation(String reservationId, Guest guest, Room room, 
@@ -37,6 +39,28 @@ public class Reservation implements Serializable {
         calculateTotalAmount();
     }
     
+    // Books at a quoted price (e.g. from the rate calendar) instead of the standard rate
+    Reservation(String reservationId, Guest guest, Room room,
+                LocalDate checkInDate, LocalDate checkOutDate, double quotedAmount) {
+        this(reservationId, guest, room, checkInDate, checkOutDate);
+        this.totalAmount = quotedAmount;
+    }
+    
+    // Restores a reservation exactly as it was stored in a snapshot
+    Reservation(String reservationId, Guest guest, Room room,
+                LocalDate checkInDate, LocalDate checkOutDate, LocalDate bookingDate,
+                Status status, double totalAmount, double advancePaid) {
+        this.reservationId = reservationId;
+        this.guest = guest;
+        this.room = room;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.bookingDate = bookingDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.advancePaid = advancePaid;
+    }
+    
     private void calculateTotalAmount() {
         long nights = ChronoUnit.DAYS.between(checkInDate, checkOutDate);
         this.totalAmount = nights * room.getPricePerNight();
@@ -46,6 +70,13 @@ public class Reservation implements Serializable {
         return ChronoUnit.DAYS.between(checkInDate, checkOutDate);
     }
     
+    /**
+     * Booked price per night; rates may differ from night to night.
+     */
+    public double getAverageNightlyRate() {
+        return totalAmount / Math.max(1, getNumberOfNights());
+    }
+    
     // Getters
     public String getReservationId() { return reservationId; }
     public Guest getGuest() { return guest; }
@@ -61,10 +92,34 @@ public class Reservation implements Serializable {
     public void setStatus(Status status) { this.status = status; }
     public void setAdvancePaid(double amount) { this.advancePaid = amount; }
     
+    // Moves the booking to another record of the same person (duplicate merge)
+    void setGuest(Guest guest) { this.guest = guest; }
+    
+    // Restores the original booking date when replaying the journal
+    void setBookingDate(LocalDate bookingDate) { this.bookingDate = bookingDate; }
+    
+    // Detached copy for a background snapshot; shares the guest, room and dates
+    Reservation copy() {
+        return new Reservation(reservationId, guest, room, checkInDate, checkOutDate, bookingDate,
+            status, totalAmount, advancePaid);
+    }
+    
     public double getBalanceAmount() {
         return totalAmount - advancePaid;
     }
     
+    public double getGst() {
+        return totalAmount * GST_RATE;
+    }
+    
+    public double getServiceTax() {
+        return totalAmount * SERVICE_TAX_RATE;
+    }
+    
+    public double getGrandTotal() {
+        return totalAmount + getGst() + getServiceTax();
+    }
+    
     public void checkIn() {
         this.status = Status.CHECKED_IN;
         this.room.setAvailable(false);
@@ -76,8 +131,11 @@ public class Reservation implements Serializable {
     }
     
     public void cancel() {
+        // Only a checked-in guest holds the room; a future booking never did
+        if (this.status == Status.CHECKED_IN) {
+            this.room.setAvailable(true);
+        }
         this.status = Status.CANCELLED;
-        this.room.setAvailable(true);
     }
     
     @Override
@@ -106,7 +164,7 @@ public class Reservation implements Serializable {
         sb.append("╠══════════════════════════════════════════════════════════╣\n");
         sb.append(String.format("║ Room Number    : %-40d ║\n", room.getRoomNumber()));
         sb.append(String.format("║ Room Type      : %-40s ║\n", room.getRoomType().getDisplayName()));
-        sb.append(String.format("║ Price/Night    : ₹%-39.0f ║\n", room.getPricePerNight()));
+        sb.append(String.format("║ Price/Night    : ₹%-39.0f ║\n", getAverageNightlyRate()));
         sb.append("╠══════════════════════════════════════════════════════════╣\n");
         sb.append("║                    STAY DETAILS                           ║\n");
         sb.append("╠══════════════════════════════════════════════════════════╣\n");
@@ -144,11 +202,11 @@ public class Reservation implements Serializable {
         sb.append("║                    CHARGES                               ║\n");
         sb.append("╠══════════════════════════════════════════════════════════╣\n");
         sb.append(String.format("║ Room Charges   : %d nights × ₹%.0f = ₹%-16.2f ║\n", 
-            getNumberOfNights(), room.getPricePerNight(), totalAmount));
+            getNumberOfNights(), getAverageNightlyRate(), totalAmount));
         
-        double gst = totalAmount * 0.12;
-        double serviceTax = totalAmount * 0.05;
-        double grandTotal = totalAmount + gst + serviceTax;
+        double gst = getGst();
+        double serviceTax = getServiceTax();
+        double grandTotal = getGrandTotal();
         
         sb.append(String.format("║ GST (12%%)      : ₹%-39.2f ║\n", gst));
         sb.append(String.format("║ Service Tax(5%%): ₹%-39.2f ║\n", serviceTax));
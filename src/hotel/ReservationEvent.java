@@ -0,0 +1,66 @@
+package hotel;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One reservation state change published on the hotel's change feed.
+ * Sequence numbers start at 1 when the hotel is loaded and increase by one
+ * per event, in the order the changes were applied. To resume after this
+ * event, keep its {@link #getResumeToken() resume token} rather than the
+ * sequence number, which is reused after a restart.
+ */
+public final class ReservationEvent {
+    
+    public enum Type {
+        BOOKED,
+        CHECKED_IN,
+        CHECKED_OUT,
+        CANCELLED
+    }
+    
+    private final long epoch;
+    private final long sequence;
+    private final Type type;
+    private final String reservationId;
+    private final String guestId;
+    private final int roomNumber;
+    private final LocalDate checkInDate;
+    private final LocalDate checkOutDate;
+    private final Instant time;
+    
+    ReservationEvent(long epoch, long sequence, Type type, Reservation reservation) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.type = type;
+        this.reservationId = reservation.getReservationId();
+        this.guestId = reservation.getGuest().getGuestId();
+        this.roomNumber = reservation.getRoom().getRoomNumber();
+        this.checkInDate = reservation.getCheckInDate();
+        this.checkOutDate = reservation.getCheckOutDate();
+        this.time = Instant.now();
+    }
+    
+    // Getters
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+    public String getReservationId() { return reservationId; }
+    public String getGuestId() { return guestId; }
+    public int getRoomNumber() { return roomNumber; }
+    public LocalDate getCheckInDate() { return checkInDate; }
+    public LocalDate getCheckOutDate() { return checkOutDate; }
+    public Instant getTime() { return time; }
+    
+    /**
+     * Token for {@link Hotel#getChangeFeed(String)} to resume after this event.
+     */
+    public String getResumeToken() {
+        return ReservationFeed.token(epoch, sequence);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("#%d %s %s | Guest: %s | Room: %d | %s to %s",
+            sequence, type, reservationId, guestId, roomNumber, checkInDate, checkOutDate);
+    }
+}
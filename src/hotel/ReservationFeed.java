@@ -0,0 +1,252 @@
+package hotel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Publisher of reservation state changes.
+ * <p>
+ * Events go into one ring of the last {@code capacity} events, shared by all
+ * subscribers; each subscriber only keeps a cursor into it. Publishing never
+ * blocks and never waits for a subscriber, so a slow one cannot hold up
+ * bookings. Subscribers receive events on a feed thread, no more than they
+ * have requested. One that falls more than {@code capacity} events behind
+ * has lost events and is failed with an {@link IllegalStateException}; it
+ * should re-read the current state and subscribe again.
+ * <p>
+ * {@link #from(String)} replays retained events after a resume token, so a
+ * consumer that reconnects can carry on from the last event it processed.
+ * Sequence numbers start at 1 in every feed, so tokens also carry a random
+ * epoch that identifies the feed; a token from another one, such as the
+ * feed before a restart, is refused rather than misread.
+ */
+class ReservationFeed implements Flow.Publisher<ReservationEvent> {
+    
+    private final AtomicReferenceArray<ReservationEvent> ring;
+    private final int mask;
+    private final long epoch;
+    private volatile long head; // sequence of the last event published
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+    private final Executor executor;
+    
+    /**
+     * @param capacity events retained for replay and for slow subscribers,
+     *                 rounded up to a power of two
+     */
+    ReservationFeed(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.epoch = ThreadLocalRandom.current().nextLong();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "hotel-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Appends an event for this change and wakes the subscribers. Callers
+     * hold the reservation's room lock, so changes to one room are published
+     * in the order they were made.
+     */
+    void publish(ReservationEvent.Type type, Reservation reservation) {
+        synchronized (this) {
+            long sequence = head + 1;
+            ring.set((int) sequence & mask, new ReservationEvent(epoch, sequence, type, reservation));
+            head = sequence;
+        }
+        for (Cursor cursor : cursors) {
+            cursor.signal();
+        }
+    }
+    
+    long lastSequence() {
+        return head;
+    }
+    
+    /**
+     * Resume token for the point just after event {@code sequence} of the
+     * feed with this epoch.
+     */
+    static String token(long epoch, long sequence) {
+        return Long.toHexString(epoch) + ":" + sequence;
+    }
+    
+    /**
+     * Resume token for the point after the last event published so far.
+     */
+    String currentToken() {
+        return token(epoch, head);
+    }
+    
+    /**
+     * Oldest sequence number that can still be replayed.
+     */
+    long firstRetainedSequence() {
+        return Math.max(1, head - mask);
+    }
+    
+    /**
+     * Subscribes to events published from now on.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ReservationEvent> subscriber) {
+        synchronized (this) {
+            start(subscriber, head + 1, null);
+        }
+    }
+    
+    /**
+     * Publisher that replays the retained events after the one the token was
+     * taken from and then continues with new ones. Subscribers are failed
+     * with an {@link IllegalStateException} if the token is from another
+     * feed, or the next event is no longer retained or was never published.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    Flow.Publisher<ReservationEvent> from(String resumeToken) {
+        int colon = resumeToken == null ? -1 : resumeToken.indexOf(':');
+        long tokenEpoch;
+        long sequence;
+        try {
+            if (colon < 0) {
+                throw new NumberFormatException();
+            }
+            tokenEpoch = Long.parseUnsignedLong(resumeToken.substring(0, colon), 16);
+            sequence = Long.parseLong(resumeToken.substring(colon + 1)) + 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid resume token: " + resumeToken);
+        }
+        return subscriber -> {
+            synchronized (this) {
+                Throwable failure = null;
+                if (tokenEpoch != epoch) {
+                    failure = new IllegalStateException("Resume token " + resumeToken
+                        + " is from another run of the change feed");
+                } else if (sequence < firstRetainedSequence()) {
+                    failure = new IllegalStateException("Events before #" + firstRetainedSequence()
+                        + " are no longer retained");
+                } else if (sequence > head + 1) {
+                    failure = new IllegalStateException("Event #" + sequence
+                        + " is ahead of the feed (last is #" + head + ")");
+                }
+                start(subscriber, sequence, failure);
+            }
+        };
+    }
+    
+    private void start(Flow.Subscriber<? super ReservationEvent> subscriber, long sequence,
+                       Throwable failure) {
+        Cursor cursor = new Cursor(subscriber, sequence);
+        if (failure != null) {
+            cursor.fail(failure);
+            return;
+        }
+        cursors.add(cursor);
+        cursor.signal();
+    }
+    
+    /**
+     * One subscriber's position in the ring. All calls to the subscriber are
+     * made from {@link #run}, which the work counter keeps to one thread at
+     * a time.
+     */
+    private final class Cursor implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ReservationEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+        // Only touched by run()
+        private long next;
+        private boolean subscribed;
+        private boolean done;
+        
+        Cursor(Flow.Subscriber<? super ReservationEvent> subscriber, long next) {
+            this.subscriber = subscriber;
+            this.next = next;
+        }
+        
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("request must be positive, was " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> {
+                long sum = current + added;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+            signal();
+        }
+        
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cursors.remove(this);
+        }
+        
+        void fail(Throwable failure) {
+            error = failure;
+            cursors.remove(this);
+            signal();
+        }
+        
+        void signal() {
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+        
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                drain();
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+        
+        private void drain() {
+            while (!done) {
+                Throwable failure = error;
+                if (failure != null) {
+                    done = true;
+                    if (!cancelled) {
+                        subscriber.onError(failure);
+                    }
+                    return;
+                }
+                if (cancelled || demand.get() == 0 || next > head) {
+                    return;
+                }
+                ReservationEvent event = ring.get((int) next & mask);
+                if (event == null || event.getSequence() != next) {
+                    fail(new IllegalStateException("Subscriber fell more than " + (mask + 1)
+                        + " events behind and missed #" + next));
+                    continue;
+                }
+                next++;
+                demand.decrementAndGet();
+                try {
+                    subscriber.onNext(event);
+                } catch (RuntimeException e) {
+                    System.out.println("Error in change feed subscriber: " + e.getMessage());
+                    cancel();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package hotel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a {@link Hotel#findReservations} listing, in ID order, with
+ * the cursor to pass back for the next page.
+ */
+public final class ReservationPage {
+    
+    private final List<Reservation> reservations;
+    private final String nextCursor;
+    
+    ReservationPage(List<Reservation> reservations, String nextCursor) {
+        this.reservations = Collections.unmodifiableList(reservations);
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<Reservation> getReservations() {
+        return reservations;
+    }
+    
+    /** Cursor for the following page, or null if this is the last one. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
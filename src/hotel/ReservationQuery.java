@@ -0,0 +1,86 @@
+package hotel;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Filters for {@link Hotel#findReservations}: a status (or just the active
+ * ones), a date range and a guest, each optional. Queries are immutable;
+ * each {@code with...} method returns a narrowed copy:
+ * <pre>
+ *   ReservationQuery.all().withStatus(Reservation.Status.CONFIRMED).withGuest("G101")
+ * </pre>
+ */
+public final class ReservationQuery {
+    
+    private static final ReservationQuery ALL = new ReservationQuery(false, null, null, null, null);
+    private static final ReservationQuery ACTIVE = new ReservationQuery(true, null, null, null, null);
+    
+    private final boolean active;
+    private final Reservation.Status status;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final String guestId;
+    
+    private ReservationQuery(boolean active, Reservation.Status status, LocalDate from, LocalDate to,
+                             String guestId) {
+        this.active = active;
+        this.status = status;
+        this.from = from;
+        this.to = to;
+        this.guestId = guestId;
+    }
+    
+    /** Every reservation, archived ones included. */
+    public static ReservationQuery all() {
+        return ALL;
+    }
+    
+    /** Confirmed and checked-in reservations. */
+    public static ReservationQuery active() {
+        return ACTIVE;
+    }
+    
+    public ReservationQuery withStatus(Reservation.Status status) {
+        return new ReservationQuery(active, status, from, to, guestId);
+    }
+    
+    /**
+     * Only stays with a night in [from, to); either end may be null for an
+     * open range.
+     */
+    public ReservationQuery withDates(LocalDate from, LocalDate to) {
+        if (from != null && to != null && !to.isAfter(from)) {
+            throw new IllegalArgumentException("Date range end must be after its start");
+        }
+        return new ReservationQuery(active, status, from, to, guestId);
+    }
+    
+    /** Only the guest with this ID (e.g. "G101"). */
+    public ReservationQuery withGuest(String guestId) {
+        return new ReservationQuery(active, status, from, to,
+            guestId == null ? null : guestId.trim().toUpperCase(Locale.ROOT));
+    }
+    
+    public Reservation.Status getStatus() { return status; }
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+    public String getGuestId() { return guestId; }
+    
+    /** True if only confirmed or checked-in reservations can match. */
+    boolean activeOnly() {
+        return active || isActive(status);
+    }
+    
+    boolean matches(Reservation reservation) {
+        return (!active || isActive(reservation.getStatus()))
+            && (status == null || reservation.getStatus() == status)
+            && (from == null || reservation.getCheckOutDate().isAfter(from))
+            && (to == null || reservation.getCheckInDate().isBefore(to))
+            && (guestId == null || guestId.equals(reservation.getGuest().getGuestId()));
+    }
+    
+    private static boolean isActive(Reservation.Status status) {
+        return status == Reservation.Status.CONFIRMED || status == Reservation.Status.CHECKED_IN;
+    }
+}
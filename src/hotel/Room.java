@@ -26,11 +26,22 @@ public class Room implements Serializable {
         public double getPricePerNight() { return pricePerNight; }
     }
     
+    /**
+     * Notified when a room switches between available and occupied.
+     */
+    public interface AvailabilityListener {
+        void availabilityChanged(Room room, boolean available);
+    }
+    
     private int roomNumber;
     private RoomType roomType;
-    private boolean isAvailable;
+    private volatile boolean isAvailable;
     private boolean hasAC;
     private boolean hasWifi;
+    private transient AvailabilityListener availabilityListener;
+    // Set once the room lives in a RoomStore; the fields above are then unused
+    private transient RoomStore store;
+    private transient int slot;
     
     public Room(int roomNumber, RoomType roomType, boolean hasAC, boolean hasWifi) {
         this.roomNumber = roomNumber;
@@ -40,29 +51,89 @@ public class Room implements Serializable {
         this.hasWifi = hasWifi;
     }
     
+    /**
+     * A view of a room held in a {@link RoomStore}.
+     */
+    Room(RoomStore store, int slot) {
+        attach(store, slot);
+    }
+    
+    /**
+     * Makes this room a view of the store's slot, which already holds its values.
+     */
+    void attach(RoomStore store, int slot) {
+        this.slot = slot;
+        this.store = store;
+        this.availabilityListener = null;
+    }
+    
     // Getters and Setters
-    public int getRoomNumber() { return roomNumber; }
-    public RoomType getRoomType() { return roomType; }
-    public boolean isAvailable() { return isAvailable; }
-    public void setAvailable(boolean available) { isAvailable = available; }
-    public boolean hasAC() { return hasAC; }
-    public boolean hasWifi() { return hasWifi; }
+    public int getRoomNumber() { return store != null ? store.number(slot) : roomNumber; }
+    public RoomType getRoomType() { return store != null ? store.type(slot) : roomType; }
+    public boolean isAvailable() { return store != null ? store.hasFlag(slot, RoomStore.FLAG_AVAILABLE) : isAvailable; }
+    public boolean hasAC() { return store != null ? store.hasFlag(slot, RoomStore.FLAG_AC) : hasAC; }
+    public boolean hasWifi() { return store != null ? store.hasFlag(slot, RoomStore.FLAG_WIFI) : hasWifi; }
+    
+    public void setAvailable(boolean available) {
+        if (store != null) {
+            store.setAvailable(slot, available);
+            return;
+        }
+        if (isAvailable == available) {
+            return;
+        }
+        isAvailable = available;
+        if (availabilityListener != null) {
+            availabilityListener.availabilityChanged(this, available);
+        }
+    }
+    
+    void setAvailabilityListener(AvailabilityListener listener) { this.availabilityListener = listener; }
     
     public double getPricePerNight() {
-        double price = roomType.getPricePerNight();
-        if (hasAC) price += 500;
-        if (hasWifi) price += 200;
+        double price = getRoomType().getPricePerNight();
+        if (hasAC()) price += 500;
+        if (hasWifi()) price += 200;
         return price;
     }
     
+    /**
+     * Rooms are equal when they have the same number, so any two views of
+     * one room are interchangeable.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Room && ((Room) other).getRoomNumber() == getRoomNumber();
+    }
+    
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(getRoomNumber());
+    }
+    
+    /**
+     * Copies the current values back into the fields, so Java serialization
+     * of a view (the legacy data file) writes the room's state.
+     */
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+        if (store != null) {
+            roomNumber = getRoomNumber();
+            roomType = getRoomType();
+            isAvailable = isAvailable();
+            hasAC = hasAC();
+            hasWifi = hasWifi();
+        }
+        out.defaultWriteObject();
+    }
+    
     @Override
     public String toString() {
         return String.format("Room %d | %-8s | ₹%.0f/night | AC: %s | WiFi: %s | %s",
-            roomNumber,
-            roomType.getDisplayName(),
+            getRoomNumber(),
+            getRoomType().getDisplayName(),
             getPricePerNight(),
-            hasAC ? "Yes" : "No",
-            hasWifi ? "Yes" : "No",
-            isAvailable ? "Available" : "Occupied");
+            hasAC() ? "Yes" : "No",
+            hasWifi() ? "Yes" : "No",
+            isAvailable() ? "Available" : "Occupied");
     }
 }
@@ -0,0 +1,90 @@
+package hotel;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Occupancy calendar of a single room.
+ * Bookings are kept as non-overlapping [checkIn, checkOut) intervals keyed by
+ * their check-in day, so a free-range check is one O(log n) floor lookup.
+ * Reads are lock-free; callers must hold the room's lock to book or release.
+ */
+class RoomCalendar {
+    private final ConcurrentSkipListMap<Long, Reservation> bookings = new ConcurrentSkipListMap<>();
+    // The booking whose guest is in the room, kept so check-in and release need no scan
+    private volatile Reservation checkedIn;
+    
+    /**
+     * Returns true if no booking overlaps the nights in [checkIn, checkOut).
+     */
+    boolean isFree(LocalDate checkIn, LocalDate checkOut) {
+        return isFree(checkIn.toEpochDay(), checkOut.toEpochDay());
+    }
+    
+    boolean isFree(long startDay, long endDay) {
+        // Only the last booking starting before endDay can overlap the range
+        Map.Entry<Long, Reservation> previous = bookings.lowerEntry(endDay);
+        return previous == null
+            || previous.getValue().getCheckOutDate().toEpochDay() <= startDay;
+    }
+    
+    /**
+     * Books the reservation's nights, or returns false if any is already taken.
+     * A reservation loaded already checked in also becomes the occupant.
+     */
+    boolean book(Reservation reservation) {
+        long start = reservation.getCheckInDate().toEpochDay();
+        long end = reservation.getCheckOutDate().toEpochDay();
+        if (!isFree(start, end)) {
+            return false;
+        }
+        bookings.put(start, reservation);
+        if (reservation.getStatus() == Reservation.Status.CHECKED_IN) {
+            checkedIn = reservation;
+        }
+        return true;
+    }
+    
+    /** Records that the booked reservation's guest has checked in. */
+    void checkIn(Reservation reservation) {
+        checkedIn = reservation;
+    }
+    
+    /** Frees the reservation's nights, and the room if its guest was in it. */
+    void release(Reservation reservation) {
+        bookings.remove(reservation.getCheckInDate().toEpochDay(), reservation);
+        if (checkedIn == reservation) {
+            checkedIn = null;
+        }
+    }
+    
+    /**
+     * Start of the free stretch around the free day {@code day}: the
+     * check-out day of the booking before it, or {@link Long#MIN_VALUE}.
+     */
+    long freeFrom(long day) {
+        Map.Entry<Long, Reservation> previous = bookings.floorEntry(day);
+        return previous == null ? Long.MIN_VALUE : previous.getValue().getCheckOutDate().toEpochDay();
+    }
+    
+    /**
+     * End of the free stretch that reaches {@code day}: the check-in day of
+     * the next booking, or {@link Long#MAX_VALUE}.
+     */
+    long freeUntil(long day) {
+        Long next = bookings.ceilingKey(day);
+        return next == null ? Long.MAX_VALUE : next;
+    }
+    
+    /** The booking whose guest is checked in to this room, or null. */
+    Reservation checkedIn() {
+        return checkedIn;
+    }
+    
+    /** The earliest booking still held on this room, or null. */
+    Reservation firstBooking() {
+        Map.Entry<Long, Reservation> first = bookings.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+}
@@ -0,0 +1,91 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Bitmap index over room attributes for multi-criteria searches.
+ * <p>
+ * Bits are numbered by the rooms' {@link RoomStore} slots, and each
+ * attribute value (type, AC, WiFi, unoccupied) has a {@link BitSet} with a
+ * bit set for every room that has it. A search combines the bitmaps with
+ * word-wise AND / AND NOT, 64 rooms per step, and only then looks at the
+ * rooms that matched. Bitmaps are updated in place as rooms are added or
+ * change availability; all access to them is synchronized on the index.
+ */
+class RoomIndex {
+    
+    private final RoomStore store;
+    private final BitSet all = new BitSet();
+    private final BitSet[] byType = new BitSet[Room.RoomType.values().length];
+    private final BitSet withAC = new BitSet();
+    private final BitSet withWifi = new BitSet();
+    private final BitSet available = new BitSet();
+    
+    RoomIndex(RoomStore store) {
+        this.store = store;
+        for (int i = 0; i < byType.length; i++) {
+            byType[i] = new BitSet();
+        }
+    }
+    
+    /**
+     * Indexes the room just added to this store slot.
+     */
+    synchronized void add(int slot) {
+        all.set(slot);
+        byType[store.type(slot).ordinal()].set(slot);
+        withAC.set(slot, store.hasFlag(slot, RoomStore.FLAG_AC));
+        withWifi.set(slot, store.hasFlag(slot, RoomStore.FLAG_WIFI));
+        available.set(slot, store.hasFlag(slot, RoomStore.FLAG_AVAILABLE));
+    }
+    
+    /**
+     * Called from the store's availability listener.
+     */
+    synchronized void availabilityChanged(int slot, boolean isAvailable) {
+        if (slot >= 0) {
+            available.set(slot, isAvailable);
+        }
+    }
+    
+    /**
+     * Slots of the rooms with every given attribute; null means any value.
+     */
+    synchronized BitSet match(Room.RoomType type, Boolean ac, Boolean wifi, boolean availableOnly) {
+        BitSet result = (BitSet) (type == null ? all : byType[type.ordinal()]).clone();
+        restrict(result, withAC, ac);
+        restrict(result, withWifi, wifi);
+        if (availableOnly) {
+            result.and(available);
+        }
+        return result;
+    }
+    
+    private static void restrict(BitSet result, BitSet attribute, Boolean wanted) {
+        if (wanted == null) {
+            return;
+        }
+        if (wanted) {
+            result.and(attribute);
+        } else {
+            result.andNot(attribute);
+        }
+    }
+    
+    /**
+     * The rooms in these slots that pass {@code check}, in slot order.
+     */
+    List<Room> rooms(BitSet matches, Predicate<Room> check) {
+        List<Room> result = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            Room room = store.view(slot);
+            if (check.test(room)) {
+                result.add(room);
+            }
+        }
+        return result;
+    }
+}
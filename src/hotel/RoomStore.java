@@ -0,0 +1,167 @@
+package hotel;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The hotel's rooms as parallel primitive arrays: room numbers in an
+ * {@code int[]}, type ordinals in a {@code byte[]}, and the AC, WiFi and
+ * availability flags packed into one more {@code byte[]}, about 6 bytes per
+ * room plus the number lookup table. Scans walk contiguous arrays instead
+ * of chasing one object per room.
+ * <p>
+ * {@link Room} objects handed out by the store are views of a slot
+ * ({@link #view}); they are created on demand and hold nothing but the slot.
+ * <p>
+ * Rooms are only added while the hotel is being set up. Availability can
+ * change concurrently: each flag byte is updated atomically and read with
+ * volatile semantics, so a view always reports the current state.
+ */
+class RoomStore {
+    
+    static final int FLAG_AC = 1;
+    static final int FLAG_WIFI = 2;
+    static final int FLAG_AVAILABLE = 4;
+    
+    private static final VarHandle FLAGS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final Room.RoomType[] TYPES = Room.RoomType.values();
+    
+    private int[] numbers = new int[64];
+    private byte[] types = new byte[64];
+    private byte[] flags = new byte[64];
+    // Open-addressing table of slot + 1 by room number; 0 marks an empty entry
+    private int[] table = new int[128];
+    // Written last by add(), so readers that read it first see complete slots
+    private volatile int size;
+    
+    private Room.AvailabilityListener listener;
+    
+    /**
+     * Copies the room into a new slot and makes {@code room} a view of it,
+     * so existing references to it (e.g. from loaded reservations) stay live.
+     * Returns the slot.
+     */
+    synchronized int add(Room room) {
+        if (slotOf(room.getRoomNumber()) >= 0) {
+            throw new IllegalArgumentException("Duplicate room number " + room.getRoomNumber());
+        }
+        int slot = size;
+        if (slot == numbers.length) {
+            numbers = Arrays.copyOf(numbers, slot * 2);
+            types = Arrays.copyOf(types, slot * 2);
+            flags = Arrays.copyOf(flags, slot * 2);
+        }
+        numbers[slot] = room.getRoomNumber();
+        types[slot] = (byte) room.getRoomType().ordinal();
+        flags[slot] = (byte) ((room.hasAC() ? FLAG_AC : 0) | (room.hasWifi() ? FLAG_WIFI : 0)
+            | (room.isAvailable() ? FLAG_AVAILABLE : 0));
+        if ((slot + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        insert(table, room.getRoomNumber(), slot);
+        size = slot + 1;
+        room.attach(this, slot);
+        return slot;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Slot of the room with this number, or -1.
+     */
+    int slotOf(int roomNumber) {
+        if (size == 0) {
+            return -1;
+        }
+        int[] entries = table;
+        int mask = entries.length - 1;
+        for (int i = hash(roomNumber) & mask; entries[i] != 0; i = (i + 1) & mask) {
+            int slot = entries[i] - 1;
+            if (numbers[slot] == roomNumber) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    /** A view of the room in this slot. */
+    Room view(int slot) {
+        return new Room(this, slot);
+    }
+    
+    /** The room with this number, or null. */
+    Room find(int roomNumber) {
+        int slot = slotOf(roomNumber);
+        return slot < 0 ? null : view(slot);
+    }
+    
+    /** Views of every room, in the order they were added. */
+    List<Room> views() {
+        int count = size;
+        List<Room> rooms = new ArrayList<>(count);
+        for (int slot = 0; slot < count; slot++) {
+            rooms.add(view(slot));
+        }
+        return rooms;
+    }
+    
+    // ==================== SLOT ACCESS ====================
+    
+    int number(int slot) {
+        return numbers[slot];
+    }
+    
+    Room.RoomType type(int slot) {
+        return TYPES[types[slot]];
+    }
+    
+    boolean hasFlag(int slot, int flag) {
+        return ((byte) FLAGS.getVolatile(flags, slot) & flag) != 0;
+    }
+    
+    /**
+     * Sets the room's availability and tells the listener if it changed.
+     */
+    void setAvailable(int slot, boolean available) {
+        byte previous = available
+            ? (byte) FLAGS.getAndBitwiseOr(flags, slot, (byte) FLAG_AVAILABLE)
+            : (byte) FLAGS.getAndBitwiseAnd(flags, slot, (byte) ~FLAG_AVAILABLE);
+        boolean was = (previous & FLAG_AVAILABLE) != 0;
+        if (was != available && listener != null) {
+            listener.availabilityChanged(view(slot), available);
+        }
+    }
+    
+    void setAvailabilityListener(Room.AvailabilityListener listener) {
+        this.listener = listener;
+    }
+    
+    // ==================== NUMBER LOOKUP ====================
+    
+    private void rehash(int capacity) {
+        int[] grown = new int[capacity];
+        for (int slot = 0; slot < size; slot++) {
+            insert(grown, numbers[slot], slot);
+        }
+        table = grown;
+    }
+    
+    private static void insert(int[] entries, int roomNumber, int slot) {
+        int mask = entries.length - 1;
+        int i = hash(roomNumber) & mask;
+        while (entries[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        entries[i] = slot + 1;
+    }
+    
+    private static int hash(int roomNumber) {
+        // Room numbers are clustered (101, 102, ...), so spread them over the table
+        return roomNumber * 0x9E3779B9 >>> 7;
+    }
+}
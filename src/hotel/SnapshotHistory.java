@@ -0,0 +1,261 @@
+package hotel;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Closed reservations and their guests, left in a memory-mapped archive (or
+ * the history section of an older snapshot) and decoded only when looked up
+ * by ID, by phone, or listed by a report. Lookups binary-search the sorted
+ * indexes at the end of the file, so opening one costs the same no matter
+ * how much history it holds.
+ * <p>
+ * Safe for concurrent reads: every decode works on its own view of the buffer.
+ */
+class SnapshotHistory {
+    
+    /** Resolves the guest and room a historical reservation refers to. */
+    interface Resolver {
+        Guest guest(int guestNumber);
+        
+        Room room(int roomNumber);
+    }
+    
+    static final SnapshotHistory EMPTY = new SnapshotHistory();
+    
+    private static final int ENTRY_SIZE = 8;
+    
+    private final ByteBuffer buffer;
+    private final int guestIndex;
+    private final int reservationIndex;
+    private final int phoneIndex;
+    private final int guestCount;
+    private final int reservationCount;
+    private final int phoneCount;
+    private final Resolver resolver;
+    
+    // Records decoded so far, so repeated lookups return the same object
+    private final Map<Integer, Guest> guestCache = new ConcurrentHashMap<>();
+    private final Map<Integer, Reservation> reservationCache = new ConcurrentHashMap<>();
+    
+    private SnapshotHistory() {
+        this.buffer = ByteBuffer.allocate(0);
+        this.guestIndex = this.reservationIndex = this.phoneIndex = 0;
+        this.guestCount = this.reservationCount = this.phoneCount = 0;
+        this.resolver = null;
+    }
+    
+    SnapshotHistory(ByteBuffer buffer, int guestIndex, int reservationIndex, int phoneIndex,
+                    Resolver resolver) {
+        this.buffer = buffer;
+        this.guestIndex = guestIndex;
+        this.reservationIndex = reservationIndex;
+        this.phoneIndex = phoneIndex;
+        this.guestCount = buffer.getInt(guestIndex);
+        this.reservationCount = buffer.getInt(reservationIndex);
+        this.phoneCount = buffer.getInt(phoneIndex);
+        this.resolver = resolver;
+    }
+    
+    int guestCount() {
+        return guestCount;
+    }
+    
+    int reservationCount() {
+        return reservationCount;
+    }
+    
+    // ==================== LOOKUPS ====================
+    
+    boolean containsGuest(int guestNumber) {
+        return search(guestIndex, guestCount, guestNumber) >= 0;
+    }
+    
+    Guest findGuest(int guestNumber) {
+        Guest cached = guestCache.get(guestNumber);
+        if (cached != null) {
+            return cached;
+        }
+        int i = search(guestIndex, guestCount, guestNumber);
+        if (i < 0) {
+            return null;
+        }
+        Guest guest = HotelCodec.readGuest(at(value(guestIndex, i)));
+        Guest raced = guestCache.putIfAbsent(guestNumber, guest);
+        return raced != null ? raced : guest;
+    }
+    
+    Reservation findReservation(int reservationNumber) {
+        Reservation cached = reservationCache.get(reservationNumber);
+        if (cached != null) {
+            return cached;
+        }
+        int i = search(reservationIndex, reservationCount, reservationNumber);
+        if (i < 0) {
+            return null;
+        }
+        Reservation reservation = decodeReservation(i);
+        if (reservation == null) {
+            return null;
+        }
+        Reservation raced = reservationCache.putIfAbsent(reservationNumber, reservation);
+        return raced != null ? raced : reservation;
+    }
+    
+    /**
+     * Returns the lowest-numbered historical guest with this phone number.
+     */
+    Guest findGuestByPhone(String phone) {
+        int hash = HotelCodec.phoneHash(phone);
+        int i = search(phoneIndex, phoneCount, hash);
+        if (i < 0) {
+            return null;
+        }
+        // Step back to the first entry with this hash; collisions are rare
+        while (i > 0 && key(phoneIndex, i - 1) == hash) {
+            i--;
+        }
+        for (; i < phoneCount && key(phoneIndex, i) == hash; i++) {
+            Guest guest = resolver.guest(value(phoneIndex, i));
+            if (guest != null && phone.equals(guest.getPhone())) {
+                return guest;
+            }
+        }
+        return null;
+    }
+    
+    /** Decodes every historical guest, in ID order. */
+    List<Guest> allGuests() {
+        List<Guest> result = new ArrayList<>(guestCount);
+        for (int i = 0; i < guestCount; i++) {
+            Guest guest = guestCache.get(key(guestIndex, i));
+            result.add(guest != null ? guest : HotelCodec.readGuest(at(value(guestIndex, i))));
+        }
+        return result;
+    }
+    
+    /** Decodes every historical reservation, in ID order. */
+    List<Reservation> allReservations() {
+        List<Reservation> result = new ArrayList<>(reservationCount);
+        for (int i = 0; i < reservationCount; i++) {
+            Reservation reservation = reservationAt(i);
+            if (reservation != null) {
+                result.add(reservation);
+            }
+        }
+        return result;
+    }
+    
+    /** The i-th historical reservation in ID order, or null if unreadable. */
+    Reservation reservationAt(int i) {
+        Reservation reservation = reservationCache.get(key(reservationIndex, i));
+        return reservation != null ? reservation : decodeReservation(i);
+    }
+    
+    private Reservation decodeReservation(int i) {
+        try {
+            return HotelCodec.readReservation(at(value(reservationIndex, i)),
+                resolver::guest, resolver::room);
+        } catch (IOException e) {
+            System.out.println("Error reading history: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Position in ID order of the first historical reservation numbered
+     * above {@code reservationNumber}; {@link #reservationCount()} if none.
+     */
+    int reservationIndexAfter(int reservationNumber) {
+        int low = 0;
+        int high = reservationCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key(reservationIndex, mid) <= reservationNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // ==================== RAW ACCESS FOR REWRITES ====================
+    
+    int guestNumberAt(int i) {
+        return key(guestIndex, i);
+    }
+    
+    int reservationNumberAt(int i) {
+        return key(reservationIndex, i);
+    }
+    
+    int guestPhoneHash(int i) {
+        ByteBuffer in = at(value(guestIndex, i) + 4);
+        HotelCodec.skipString(in); // name
+        return HotelCodec.phoneHash(HotelCodec.readString(in));
+    }
+    
+    /** Copies the i-th guest record byte for byte. */
+    void copyGuestRecord(int i, DataOutputStream out) throws IOException {
+        int start = value(guestIndex, i);
+        ByteBuffer in = at(start + 4);
+        for (int field = 0; field < 5; field++) {
+            HotelCodec.skipString(in);
+        }
+        copy(start, in.position() - start, out);
+    }
+    
+    /** Copies the i-th reservation record byte for byte. */
+    void copyReservationRecord(int i, DataOutputStream out) throws IOException {
+        copy(value(reservationIndex, i), HotelCodec.RESERVATION_RECORD_SIZE, out);
+    }
+    
+    private void copy(int position, int length, DataOutputStream out) throws IOException {
+        byte[] bytes = new byte[length];
+        at(position).get(bytes);
+        out.write(bytes);
+    }
+    
+    // ==================== INDEX ACCESS ====================
+    
+    private ByteBuffer at(int position) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        return view;
+    }
+    
+    private int key(int index, int i) {
+        return buffer.getInt(index + 4 + i * ENTRY_SIZE);
+    }
+    
+    private int value(int index, int i) {
+        return buffer.getInt(index + 8 + i * ENTRY_SIZE);
+    }
+    
+    /**
+     * Binary search over an index sorted by key. Returns the position of a
+     * matching entry, or -1.
+     */
+    private int search(int index, int count, int target) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = key(index, mid);
+            if (key < target) {
+                low = mid + 1;
+            } else if (key > target) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,35 @@
+package hotel;
+
+/**
+ * Bounded, lossy dedup cache for strings that repeat across many records,
+ * such as guest names and addresses. Equal values passed to {@link #share}
+ * usually come back as one instance; each slot keeps the last string hashed
+ * to it, so memory stays fixed however many distinct values go through.
+ * <p>
+ * Slots are read and written without locks: strings are immutable, and a
+ * lost write only costs a duplicate.
+ */
+final class StringCache {
+    private final String[] slots;
+    
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    StringCache(int capacity) {
+        slots = new String[Integer.highestOneBit(Math.max(1, capacity - 1)) << 1];
+    }
+    
+    String share(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (slots.length - 1);
+        String cached = slots[slot];
+        if (value.equals(cached)) {
+            return cached;
+        }
+        slots[slot] = value;
+        return value;
+    }
+}
@@ -0,0 +1,219 @@
+package hotel;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sparse array indexed by int, stored as a 32-way trie. Setting an
+ * element returns a new array that copies only the nodes on the path to it
+ * (at most a handful for a billion indexes) and shares everything else with
+ * the old one, so each version can be kept cheaply and read without locks.
+ * <p>
+ * Null elements are absent; iteration returns the others in index order.
+ */
+final class VersionedArray<T> implements Iterable<T> {
+    
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    
+    private static final VersionedArray<?> EMPTY = new VersionedArray<>(new Object[WIDTH], 0, 0);
+    
+    // Inner nodes hold child Object[]s; the leaves (shift 0) hold the elements
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+    
+    private VersionedArray(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T> VersionedArray<T> empty() {
+        return (VersionedArray<T>) EMPTY;
+    }
+    
+    /** Number of non-null elements. */
+    int size() {
+        return size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        if (index < 0 || !fits(index, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (T) node[index & MASK];
+    }
+    
+    /**
+     * A copy with the element at {@code index} replaced; null removes it.
+     */
+    VersionedArray<T> with(int index, T value) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Negative index " + index);
+        }
+        Object[] top = root;
+        int levels = shift;
+        while (!fits(index, levels)) {
+            if (value == null) {
+                return this;
+            }
+            Object[] grown = new Object[WIDTH];
+            grown[0] = top;
+            top = grown;
+            levels += BITS;
+        }
+        Object previous = get(index);
+        if (previous == value) {
+            return this;
+        }
+        int delta = (value == null ? 0 : 1) - (previous == null ? 0 : 1);
+        return new VersionedArray<>(set(top, levels, index, value), levels, size + delta);
+    }
+    
+    /**
+     * Fills a new array in place, for building a version from scratch
+     * without copying a path per element.
+     */
+    static final class Builder<T> {
+        private Object[] root = new Object[WIDTH];
+        private int shift;
+        private int size;
+        
+        Builder<T> set(int index, T value) {
+            if (index < 0) {
+                throw new IndexOutOfBoundsException("Negative index " + index);
+            }
+            while (!fits(index, shift)) {
+                Object[] grown = new Object[WIDTH];
+                grown[0] = root;
+                root = grown;
+                shift += BITS;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int i = (index >>> level) & MASK;
+                if (node[i] == null) {
+                    node[i] = new Object[WIDTH];
+                }
+                node = (Object[]) node[i];
+            }
+            size += (value == null ? 0 : 1) - (node[index & MASK] == null ? 0 : 1);
+            node[index & MASK] = value;
+            return this;
+        }
+        
+        VersionedArray<T> build() {
+            VersionedArray<T> built = new VersionedArray<>(root, shift, size);
+            root = null;
+            return built;
+        }
+    }
+    
+    private static Object[] set(Object[] node, int level, int index, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int i = (index >>> level) & MASK;
+        copy[i] = level == 0 ? value : set((Object[]) copy[i], level - BITS, index, value);
+        return copy;
+    }
+    
+    private static boolean fits(int index, int shift) {
+        return shift + BITS >= 31 || index >>> (shift + BITS) == 0;
+    }
+    
+    @Override
+    public Iterator<T> iterator() {
+        return iterator(0);
+    }
+    
+    /**
+     * Iterates the elements at {@code from} and above, in index order. Finding
+     * the start costs one descent, so paging through the array by index is
+     * as cheap as iterating it once.
+     */
+    Iterator<T> iterator(int from) {
+        return new Iterator<T>() {
+            // Path from the root to the current leaf and the next slot in each node
+            private final Object[][] path = new Object[shift / BITS + 1][];
+            private final int[] positions = new int[path.length];
+            private int depth;
+            private T next;
+            
+            {
+                path[0] = root;
+                if (fits(Math.max(from, 0), shift)) {
+                    seek(Math.max(from, 0));
+                    advance();
+                }
+            }
+            
+            /**
+             * Descends towards {@code index} as far as the trie has nodes,
+             * leaving each level positioned at the first slot not below it.
+             */
+            private void seek(int index) {
+                for (int level = shift; ; level -= BITS) {
+                    int i = (index >>> level) & MASK;
+                    Object child = path[depth][i];
+                    if (level == 0 || child == null) {
+                        // An empty subtree holds nothing at or above index: go on after it
+                        positions[depth] = level == 0 ? i : i + 1;
+                        return;
+                    }
+                    positions[depth] = i + 1;
+                    depth++;
+                    path[depth] = (Object[]) child;
+                }
+            }
+            
+            @SuppressWarnings("unchecked")
+            private void advance() {
+                next = null;
+                while (next == null && depth >= 0) {
+                    int i = positions[depth];
+                    if (i == WIDTH) {
+                        depth--;
+                        continue;
+                    }
+                    positions[depth] = i + 1;
+                    Object child = path[depth][i];
+                    if (child == null) {
+                        continue;
+                    }
+                    if (depth == path.length - 1) {
+                        next = (T) child;
+                    } else {
+                        depth++;
+                        path[depth] = (Object[]) child;
+                        positions[depth] = 0;
+                    }
+                }
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+            
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T result = next;
+                advance();
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package hotel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Waiting requests indexed by room type, check-in day and check-out day,
+ * with the requests for the same dates kept in arrival order.
+ * <p>
+ * When nights of a room come free, {@link #take} looks only at the check-in
+ * days inside the free stretch, and for each one finds the longest stay that
+ * still fits with one floor lookup. A match costs O(d log n) for d days in
+ * the stretch, however many requests are waiting. All methods synchronize
+ * on the waitlist.
+ */
+class Waitlist {
+    
+    // type -> check-in day -> check-out day -> requests, oldest first
+    private final Map<Room.RoomType, TreeMap<Long, TreeMap<Long, ArrayDeque<WaitlistRequest>>>> index =
+        new EnumMap<>(Room.RoomType.class);
+    private int size;
+    
+    Waitlist() {
+        for (Room.RoomType type : Room.RoomType.values()) {
+            index.put(type, new TreeMap<>());
+        }
+    }
+    
+    synchronized int size() {
+        return size;
+    }
+    
+    synchronized void add(WaitlistRequest request) {
+        index.get(request.getRoomType())
+            .computeIfAbsent(request.getCheckInDate().toEpochDay(), day -> new TreeMap<>())
+            .computeIfAbsent(request.getCheckOutDate().toEpochDay(), day -> new ArrayDeque<>())
+            .add(request);
+        size++;
+    }
+    
+    /**
+     * Removes a waiting request. Returns false if it is no longer waiting.
+     */
+    synchronized boolean remove(WaitlistRequest request) {
+        TreeMap<Long, TreeMap<Long, ArrayDeque<WaitlistRequest>>> byCheckIn = index.get(request.getRoomType());
+        long checkIn = request.getCheckInDate().toEpochDay();
+        TreeMap<Long, ArrayDeque<WaitlistRequest>> byCheckOut = byCheckIn.get(checkIn);
+        long checkOut = request.getCheckOutDate().toEpochDay();
+        ArrayDeque<WaitlistRequest> queue = byCheckOut == null ? null : byCheckOut.get(checkOut);
+        if (queue == null || !queue.remove(request)) {
+            return false;
+        }
+        if (queue.isEmpty()) {
+            byCheckOut.remove(checkOut);
+            if (byCheckOut.isEmpty()) {
+                byCheckIn.remove(checkIn);
+            }
+        }
+        size--;
+        return true;
+    }
+    
+    /**
+     * Removes and returns the best request for a room of this type that is
+     * free for [freeFrom, freeUntil), using at least one of the nights in
+     * [from, to): the longest stay, then the oldest request. Requests
+     * checking in before {@code today} are expired on the way.
+     */
+    synchronized WaitlistRequest take(Room.RoomType type, long today, long freeFrom, long freeUntil,
+                                      long from, long to) {
+        TreeMap<Long, TreeMap<Long, ArrayDeque<WaitlistRequest>>> byCheckIn = index.get(type);
+        expire(byCheckIn, today);
+        
+        long start = Math.max(freeFrom, today);
+        // A request using one of the freed nights checks in before `to`
+        long end = Math.min(to, freeUntil);
+        if (start >= end) {
+            return null;
+        }
+        WaitlistRequest best = null;
+        long bestNights = 0;
+        for (Map.Entry<Long, TreeMap<Long, ArrayDeque<WaitlistRequest>>> day
+                : byCheckIn.subMap(start, true, end, false).entrySet()) {
+            Map.Entry<Long, ArrayDeque<WaitlistRequest>> longest = day.getValue().floorEntry(freeUntil);
+            if (longest == null || longest.getKey() <= from) {
+                continue;
+            }
+            WaitlistRequest candidate = longest.getValue().peekFirst();
+            long nights = longest.getKey() - day.getKey();
+            if (best == null || nights > bestNights
+                    || (nights == bestNights && candidate.getSequence() < best.getSequence())) {
+                best = candidate;
+                bestNights = nights;
+            }
+        }
+        if (best != null) {
+            remove(best);
+        }
+        return best;
+    }
+    
+    /**
+     * Waiting requests in arrival order, after expiring those checking in
+     * before {@code today}.
+     */
+    synchronized List<WaitlistRequest> requests(long today) {
+        List<WaitlistRequest> all = new ArrayList<>(size);
+        for (TreeMap<Long, TreeMap<Long, ArrayDeque<WaitlistRequest>>> byCheckIn : index.values()) {
+            expire(byCheckIn, today);
+            for (TreeMap<Long, ArrayDeque<WaitlistRequest>> byCheckOut : byCheckIn.values()) {
+                for (ArrayDeque<WaitlistRequest> queue : byCheckOut.values()) {
+                    all.addAll(queue);
+                }
+            }
+        }
+        all.sort(Comparator.comparingLong(WaitlistRequest::getSequence));
+        return all;
+    }
+    
+    private void expire(TreeMap<Long, TreeMap<Long, ArrayDeque<WaitlistRequest>>> byCheckIn, long today) {
+        NavigableMap<Long, TreeMap<Long, ArrayDeque<WaitlistRequest>>> past = byCheckIn.headMap(today, false);
+        for (Iterator<TreeMap<Long, ArrayDeque<WaitlistRequest>>> days = past.values().iterator();
+                days.hasNext(); ) {
+            for (ArrayDeque<WaitlistRequest> queue : days.next().values()) {
+                for (WaitlistRequest request : queue) {
+                    request.setStatus(WaitlistRequest.Status.EXPIRED);
+                }
+                size -= queue.size();
+            }
+            days.remove();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package hotel;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A guest waiting for any room of a type to come free for a date range.
+ * The hotel books it automatically when a cancellation or early check-out
+ * frees nights that fit.
+ */
+public class WaitlistRequest {
+    
+    public enum Status {
+        WAITING, FILLED, WITHDRAWN, EXPIRED
+    }
+    
+    private final String requestId;
+    private final long sequence;
+    private final Guest guest;
+    private final Room.RoomType roomType;
+    private final LocalDate checkInDate;
+    private final LocalDate checkOutDate;
+    private final double advance;
+    private final Instant requestedAt;
+    private volatile Status status;
+    private volatile Reservation reservation;
+    
+    WaitlistRequest(long sequence, Guest guest, Room.RoomType roomType,
+                    LocalDate checkInDate, LocalDate checkOutDate, double advance) {
+        this.requestId = "W" + sequence;
+        this.sequence = sequence;
+        this.guest = guest;
+        this.roomType = roomType;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.advance = advance;
+        this.requestedAt = Instant.now();
+        this.status = Status.WAITING;
+    }
+    
+    // Getters
+    public String getRequestId() { return requestId; }
+    public Guest getGuest() { return guest; }
+    public Room.RoomType getRoomType() { return roomType; }
+    public LocalDate getCheckInDate() { return checkInDate; }
+    public LocalDate getCheckOutDate() { return checkOutDate; }
+    public double getAdvance() { return advance; }
+    public Instant getRequestedAt() { return requestedAt; }
+    public Status getStatus() { return status; }
+    
+    /** The booking made for this request once it is filled, else null. */
+    public Reservation getReservation() { return reservation; }
+    
+    public long getNumberOfNights() {
+        return ChronoUnit.DAYS.between(checkInDate, checkOutDate);
+    }
+    
+    // Arrival order; earlier requests win ties
+    long getSequence() { return sequence; }
+    
+    void filled(Reservation reservation) {
+        this.reservation = reservation;
+        this.status = Status.FILLED;
+    }
+    
+    void setStatus(Status status) { this.status = status; }
+    
+    @Override
+    public String toString() {
+        return String.format("%s | %s | %-8s | %s to %s | %s",
+            requestId, guest.getName(), roomType.getDisplayName(), checkInDate, checkOutDate,
+            status == Status.FILLED ? "Booked as " + reservation.getReservationId() : status);
+    }
+}
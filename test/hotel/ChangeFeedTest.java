@@ -0,0 +1,117 @@
+package hotel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Resuming the change feed with resume tokens, within a run and across a
+ * restart.
+ */
+class ChangeFeedTest {
+    
+    @TempDir
+    File dataDir;
+    
+    @Test
+    void resumesAfterTokenWithinRun() throws Exception {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        Guest guest = hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        String start = hotel.getChangeToken();
+        List<String> booked = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            LocalDate checkIn = LocalDate.now().plusDays(1 + i);
+            booked.add(hotel.makeReservation(guest, hotel.getRoomByNumber(101), checkIn,
+                checkIn.plusDays(1), 0).getReservationId());
+        }
+        
+        Collector all = new Collector(5);
+        hotel.getChangeFeed(start).subscribe(all);
+        List<ReservationEvent> events = all.result.get(5, TimeUnit.SECONDS);
+        assertEquals(booked, ids(events));
+        
+        Collector rest = new Collector(3);
+        hotel.getChangeFeed(events.get(1).getResumeToken()).subscribe(rest);
+        assertEquals(booked.subList(2, 5), ids(rest.result.get(5, TimeUnit.SECONDS)));
+    }
+    
+    @Test
+    void refusesTokenFromBeforeRestart() throws Exception {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        Guest guest = hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        LocalDate checkIn = LocalDate.now().plusDays(1);
+        hotel.makeReservation(guest, hotel.getRoomByNumber(101), checkIn, checkIn.plusDays(1), 0);
+        String token = hotel.getChangeToken();
+        
+        // After the restart, event #1 and on are different changes
+        Hotel restarted = new Hotel("Test Hotel", dataDir);
+        restarted.makeReservation(restarted.findGuestById(guest.getGuestId()),
+            restarted.getRoomByNumber(201), checkIn, checkIn.plusDays(1), 0);
+        restarted.makeReservation(restarted.findGuestById(guest.getGuestId()),
+            restarted.getRoomByNumber(301), checkIn, checkIn.plusDays(1), 0);
+        assertEquals(2, restarted.getChangeSequence());
+        
+        Collector stale = new Collector(1);
+        restarted.getChangeFeed(token).subscribe(stale);
+        Exception failure = assertThrows(Exception.class, () -> stale.result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+    
+    @Test
+    void rejectsMalformedToken() {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        assertThrows(IllegalArgumentException.class, () -> hotel.getChangeFeed("12"));
+        assertThrows(IllegalArgumentException.class, () -> hotel.getChangeFeed("xyz:1"));
+        assertThrows(IllegalArgumentException.class, () -> hotel.getChangeFeed((String) null));
+    }
+    
+    private static List<String> ids(List<ReservationEvent> events) {
+        List<String> ids = new ArrayList<>();
+        events.forEach(event -> ids.add(event.getReservationId()));
+        return ids;
+    }
+    
+    /**
+     * Completes with the first {@code expected} events, or with the feed's error.
+     */
+    private static final class Collector implements Flow.Subscriber<ReservationEvent> {
+        final CompletableFuture<List<ReservationEvent>> result = new CompletableFuture<>();
+        private final List<ReservationEvent> events = new ArrayList<>();
+        private final int expected;
+        
+        Collector(int expected) {
+            this.expected = expected;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(ReservationEvent event) {
+            events.add(event);
+            if (events.size() == expected) {
+                result.complete(new ArrayList<>(events));
+            }
+        }
+        
+        @Override
+        public void onError(Throwable failure) {
+            result.completeExceptionally(failure);
+        }
+        
+        @Override
+        public void onComplete() {
+        }
+    }
+}
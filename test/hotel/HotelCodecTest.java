@@ -0,0 +1,140 @@
+package hotel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The binary snapshot format: round trips, closed records decoded on
+ * demand, corrupt files and migration from Java serialization.
+ */
+class HotelCodecTest {
+    
+    @TempDir
+    File dataDir;
+    
+    private final Room single = new Room(101, Room.RoomType.SINGLE, false, true);
+    private final Room suite = new Room(401, Room.RoomType.SUITE, true, true);
+    private final Guest asha = new Guest("G101", "Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+    private final Guest ravi = new Guest("G102", "Ravi Nāyar", "9123456780", null, "", "Kochi");
+    
+    @Test
+    void roundTripKeepsEveryField() throws IOException {
+        LocalDate checkIn = LocalDate.of(2025, 3, 10);
+        Reservation booked = new Reservation("RES1001", asha, single, checkIn, checkIn.plusDays(2),
+            LocalDate.of(2025, 1, 5), Reservation.Status.CONFIRMED, 3123.5, 1000);
+        Reservation staying = new Reservation("RES1002", ravi, suite, checkIn, checkIn.plusDays(1),
+            LocalDate.of(2025, 2, 1), Reservation.Status.CHECKED_IN, 9000, 0);
+        File file = new File(dataDir, "snapshot.dat");
+        HotelCodec.write(new HotelCodec.Snapshot(List.of(single, suite), List.of(asha, ravi),
+            List.of(booked, staying), 1002, 102, 77), file);
+        
+        HotelCodec.Snapshot read = HotelCodec.read(file, resolver(List.of(asha, ravi)));
+        assertEquals(1002, read.reservationCounter);
+        assertEquals(102, read.guestCounter);
+        assertEquals(77, read.journalSequence);
+        assertEquals(2, read.rooms.size());
+        assertEquals(Room.RoomType.SUITE, read.rooms.get(1).getRoomType());
+        assertFalse(read.rooms.get(0).hasAC());
+        
+        Guest guest = read.guests.get(1);
+        assertEquals("G102", guest.getGuestId());
+        assertEquals("Ravi Nāyar", guest.getName());
+        assertNull(guest.getEmail());
+        assertEquals("", guest.getIdProof());
+        
+        Reservation reservation = read.reservations.get(0);
+        assertEquals("RES1001", reservation.getReservationId());
+        assertEquals("G101", reservation.getGuest().getGuestId());
+        assertEquals(101, reservation.getRoom().getRoomNumber());
+        assertEquals(checkIn, reservation.getCheckInDate());
+        assertEquals(checkIn.plusDays(2), reservation.getCheckOutDate());
+        assertEquals(LocalDate.of(2025, 1, 5), reservation.getBookingDate());
+        assertEquals(3123.5, reservation.getTotalAmount());
+        assertEquals(1000, reservation.getAdvancePaid());
+        assertEquals(Reservation.Status.CHECKED_IN, read.reservations.get(1).getStatus());
+    }
+    
+    @Test
+    void closedRecordsAreDecodedOnDemand() throws IOException {
+        List<Reservation> closed = new ArrayList<>();
+        LocalDate checkIn = LocalDate.of(2024, 6, 1);
+        for (int i = 0; i < 50; i++) {
+            Reservation reservation = new Reservation("RES" + (1001 + i), ravi, single,
+                checkIn.plusDays(i), checkIn.plusDays(i + 1));
+            reservation.setStatus(i % 2 == 0 ? Reservation.Status.CHECKED_OUT : Reservation.Status.CANCELLED);
+            closed.add(reservation);
+        }
+        File file = new File(dataDir, "snapshot.dat");
+        HotelCodec.write(new HotelCodec.Snapshot(List.of(single), List.of(asha), List.of(),
+            List.of(ravi), closed, SnapshotHistory.EMPTY, 1050, 102, 0), file);
+        
+        SnapshotHistory history = HotelCodec.read(file, resolver(List.of(asha, ravi))).history;
+        assertEquals(50, history.reservationCount());
+        assertEquals(1, history.guestCount());
+        Reservation found = history.findReservation(1024);
+        assertEquals("RES1024", found.getReservationId());
+        assertEquals(Reservation.Status.CANCELLED, found.getStatus());
+        assertEquals(checkIn.plusDays(23), found.getCheckInDate());
+        assertNull(history.findReservation(1051));
+        assertEquals("Ravi Nāyar", history.findGuest(102).getName());
+        assertEquals("G102", history.findGuestByPhone("9123456780").getGuestId());
+        assertNull(history.findGuestByPhone("9876543210"));
+    }
+    
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        File file = new File(dataDir, "snapshot.dat");
+        HotelCodec.write(new HotelCodec.Snapshot(List.of(single), List.of(asha), List.of(), 1000, 101, 0), file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        
+        assertThrows(IOException.class, () -> HotelCodec.read(file, resolver(List.of(asha))));
+    }
+    
+    @Test
+    void hotelMigratesSerializedData() throws IOException {
+        Reservation reservation = new Reservation("RES1001", asha, single, LocalDate.now(), LocalDate.now().plusDays(1));
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new FileOutputStream(new File(dataDir, "hotel_data.ser")))) {
+            out.writeObject(new ArrayList<>(List.of(single, suite)));
+            out.writeObject(new ArrayList<>(List.of(asha)));
+            out.writeObject(new ArrayList<>(List.of(reservation)));
+            out.writeInt(1001);
+            out.writeInt(101);
+        }
+        
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        assertEquals(2, hotel.getRoomCount());
+        assertEquals("Asha Rao", hotel.findReservationById("RES1001").getGuest().getName());
+        assertTrue(new File(dataDir, Hotel.DATA_FILE).exists());
+        assertTrue(new File(dataDir, "hotel_data.ser.migrated").exists());
+        assertEquals("RES1002", hotel.makeReservation(hotel.findGuestById("G101"),
+            hotel.getRoomByNumber(401), LocalDate.now(), LocalDate.now().plusDays(1), 0).getReservationId());
+    }
+    
+    private SnapshotHistory.Resolver resolver(List<Guest> guests) {
+        Map<Integer, Guest> byNumber = new HashMap<>();
+        for (Guest guest : guests) {
+            byNumber.put(Hotel.idNumber(guest.getGuestId(), "G"), guest);
+        }
+        return new SnapshotHistory.Resolver() {
+            @Override
+            public Guest guest(int guestNumber) {
+                return byNumber.get(guestNumber);
+            }
+            
+            @Override
+            public Room room(int roomNumber) {
+                return roomNumber == single.getRoomNumber() ? single
+                    : roomNumber == suite.getRoomNumber() ? suite : null;
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package hotel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.*;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Journal replay on restart, including torn or corrupt tails.
+ */
+class HotelJournalTest {
+    
+    @TempDir
+    File dataDir;
+    
+    @Test
+    void replaysChangesSinceSnapshot() {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        Guest guest = hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        LocalDate today = LocalDate.now();
+        Reservation stay = hotel.makeReservation(guest, hotel.getRoomByNumber(101), today, today.plusDays(2), 500);
+        Reservation cancelled = hotel.makeReservation(guest, hotel.getRoomByNumber(201), today, today.plusDays(1), 0);
+        assertTrue(hotel.checkIn(stay));
+        assertTrue(hotel.cancelReservation(cancelled));
+        
+        Hotel reloaded = new Hotel("Test Hotel", dataDir);
+        Reservation replayed = reloaded.findReservationById(stay.getReservationId());
+        assertEquals(Reservation.Status.CHECKED_IN, replayed.getStatus());
+        assertEquals(500, replayed.getAdvancePaid());
+        assertEquals(guest.getGuestId(), replayed.getGuest().getGuestId());
+        assertEquals(Reservation.Status.CANCELLED,
+            reloaded.findReservationById(cancelled.getReservationId()).getStatus());
+    }
+    
+    /**
+     * A record header whose length no writer could produce, or that runs
+     * past the end of the file, is dropped without allocating for it.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {Integer.MAX_VALUE, Integer.MIN_VALUE, -5, 0, 100, HotelJournal.MAX_RECORD_SIZE + 1})
+    void truncatesTornTail(int length) throws IOException {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        hotel.addGuest("Ravi Nair", "9123456780", "ravi@example.com", "ID2", "Kochi");
+        File journal = new File(dataDir, "hotel_data.journal");
+        long valid = journal.length();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journal, true))) {
+            out.writeInt(length);
+            out.writeInt(0);
+            out.write(new byte[20]);
+        }
+        
+        Hotel reloaded = new Hotel("Test Hotel", dataDir);
+        assertEquals(2, reloaded.getAllGuests().size());
+        assertEquals(valid, journal.length());
+        // Appends after the truncation replay normally
+        reloaded.addGuest("Meera Iyer", "9000000001", "meera@example.com", "ID3", "Chennai");
+        assertEquals(3, new Hotel("Test Hotel", dataDir).getAllGuests().size());
+    }
+    
+    @Test
+    void stopsAtChecksumMismatch() throws IOException {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        File journal = new File(dataDir, "hotel_data.journal");
+        long valid = journal.length();
+        hotel.addGuest("Ravi Nair", "9123456780", "ravi@example.com", "ID2", "Kochi");
+        try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+            raf.seek(journal.length() - 1);
+            int last = raf.read();
+            raf.seek(journal.length() - 1);
+            raf.write(last ^ 0xFF);
+        }
+        
+        Hotel reloaded = new Hotel("Test Hotel", dataDir);
+        assertEquals(1, reloaded.getAllGuests().size());
+        assertEquals(valid, journal.length());
+    }
+}
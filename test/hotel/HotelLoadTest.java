@@ -0,0 +1,87 @@
+package hotel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Snapshots written while a hotel is still loading: compaction of a long
+ * journal and migration of closed records held inline in older snapshots.
+ * Reloading afterwards must find every guest and reservation.
+ */
+class HotelLoadTest {
+    
+    private static final int GUESTS = 600;
+    
+    @TempDir
+    File dataDir;
+    
+    @Test
+    void reloadAfterCompactionDuringLoad() throws Exception {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        List<Room> rooms = hotel.getAllRooms();
+        LocalDate checkIn = LocalDate.now().plusDays(1);
+        // Written past the hotel, as if it had stopped before compacting
+        HotelJournal journal = new HotelJournal(new File(dataDir, "hotel_data.journal"));
+        for (int i = 0; i < GUESTS; i++) {
+            Guest guest = new Guest("G" + (101 + i), "Guest " + i, "9" + (100000000 + i), "", "", "");
+            journal.logGuest(guest);
+            journal.logReservation(new Reservation("RES" + (1001 + i), guest, rooms.get(i % rooms.size()),
+                checkIn.plusDays(i / rooms.size()), checkIn.plusDays(i / rooms.size() + 1)));
+        }
+        journal.close();
+        
+        // Replaying 1200 records starts a background compaction from the constructor
+        new Hotel("Test Hotel", dataDir);
+        awaitSnapshotThrough(2L * GUESTS);
+        
+        Hotel reloaded = new Hotel("Test Hotel", dataDir);
+        assertEquals(GUESTS, reloaded.getAllGuests().size());
+        assertEquals(GUESTS, reloaded.getAllReservations().size());
+        assertEquals("G700", reloaded.findReservationById("RES1600").getGuest().getGuestId());
+    }
+    
+    @Test
+    void reloadAfterMigratingInlineHistory() throws IOException {
+        Room room = new Room(101, Room.RoomType.SINGLE, true, true);
+        Guest current = new Guest("G101", "Asha Rao", "9876543210", "", "ID1", "");
+        Guest former = new Guest("G102", "Ravi Nair", "9123456780", "", "ID2", "");
+        LocalDate checkIn = LocalDate.now().plusDays(1);
+        Reservation booked = new Reservation("RES1002", current, room, checkIn, checkIn.plusDays(1));
+        Reservation closed = new Reservation("RES1001", former, room, checkIn.minusDays(400), checkIn.minusDays(399));
+        closed.setStatus(Reservation.Status.CHECKED_OUT);
+        HotelCodec.write(new HotelCodec.Snapshot(List.of(room), List.of(current), List.of(booked),
+            List.of(former), List.of(closed), SnapshotHistory.EMPTY, 1002, 102, 0),
+            new File(dataDir, Hotel.DATA_FILE));
+        
+        new Hotel("Test Hotel", dataDir);
+        
+        Hotel reloaded = new Hotel("Test Hotel", dataDir);
+        assertEquals(1, reloaded.getRoomCount());
+        assertEquals("Asha Rao", reloaded.findReservationById("RES1002").getGuest().getName());
+        assertEquals("Ravi Nair", reloaded.findReservationById("RES1001").getGuest().getName());
+        assertEquals(List.of("G101", "G102"), guestIds(reloaded.getAllGuests()));
+    }
+    
+    private void awaitSnapshotThrough(long journalSequence) throws Exception {
+        File dataFile = new File(dataDir, Hotel.DATA_FILE);
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (HotelCodec.read(dataFile, null).journalSequence < journalSequence) {
+            assertTrue(System.nanoTime() < deadline, "No snapshot through " + journalSequence);
+            Thread.sleep(10);
+        }
+    }
+    
+    private static List<String> guestIds(List<Guest> guests) {
+        List<String> ids = new ArrayList<>();
+        guests.forEach(guest -> ids.add(guest.getGuestId()));
+        return ids;
+    }
+}
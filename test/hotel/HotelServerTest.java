@@ -0,0 +1,149 @@
+package hotel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Status codes and error bodies of the HTTP API.
+ */
+class HotelServerTest {
+    
+    @TempDir
+    File dataDir;
+    
+    private HotelServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+    
+    @Test
+    void internalErrorsDoNotLeakDetails() throws Exception {
+        Hotel failing = new Hotel("Test Hotel", dataDir) {
+            @Override
+            public List<Room> findRooms(Room.RoomType type, Boolean ac, Boolean wifi,
+                                        LocalDate checkIn, LocalDate checkOut) {
+                throw new IllegalStateException("secret table layout");
+            }
+        };
+        start(failing);
+        
+        HttpResponse<String> response = get("/rooms");
+        assertEquals(500, response.statusCode());
+        assertEquals("{\"error\":\"Internal error\"}", response.body());
+    }
+    
+    @Test
+    void refusesOversizedBodies() throws Exception {
+        start(new Hotel("Test Hotel", dataDir));
+        
+        // Refused on the header alone, before any of the body is sent
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.getOutputStream().write(("POST /reservations HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Length: " + (2 << 20) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertTrue(in.readLine().startsWith("HTTP/1.1 413 "));
+        }
+        // Without a Content-Length the body is sent chunked and cut off just past the cap
+        byte[] large = new byte[(1 << 20) + 100];
+        HttpResponse<String> chunked = post("/reservations",
+            HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(large)));
+        assertEquals(413, chunked.statusCode());
+        assertEquals(201, post("/reservations", booking(101, "0")).statusCode());
+    }
+    
+    @Test
+    void rejectsInvalidAdvance() throws Exception {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        start(hotel);
+        
+        for (String advance : new String[] {"-500", "1e999", "\"500\"", "-0.01"}) {
+            HttpResponse<String> response = post("/reservations", booking(101, advance));
+            assertEquals(400, response.statusCode(), advance);
+        }
+        assertTrue(hotel.getAllGuests().isEmpty());
+        HttpResponse<String> booked = post("/reservations", booking(101, "1500.5"));
+        assertEquals(201, booked.statusCode());
+        assertTrue(booked.body().contains("\"advancePaid\":1500.5"));
+    }
+    
+    @Test
+    void refusedCheckInGivesReason() throws Exception {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        start(hotel);
+        Guest guest = hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        Room room = hotel.getRoomByNumber(101);
+        LocalDate today = LocalDate.now();
+        Reservation early = hotel.makeReservation(guest, room, today.plusDays(5), today.plusDays(6), 0);
+        // Yesterday's guest has not left yet when today's arrives
+        Reservation overstay = hotel.makeReservation(guest, room, today.minusDays(1), today, 0);
+        Reservation arriving = hotel.makeReservation(guest, room, today, today.plusDays(1), 0);
+        assertTrue(hotel.checkIn(overstay));
+        
+        HttpResponse<String> response = post("/reservations/" + early.getReservationId() + "/checkin");
+        assertEquals(409, response.statusCode());
+        assertTrue(response.body().contains("the stay starts on " + early.getCheckInDate()), response.body());
+        
+        response = post("/reservations/" + arriving.getReservationId() + "/checkin");
+        assertEquals(409, response.statusCode());
+        assertTrue(response.body().contains("room 101 is still occupied (" + overstay.getReservationId()), response.body());
+        
+        assertEquals(200, post("/reservations/" + overstay.getReservationId() + "/checkout").statusCode());
+        response = post("/reservations/" + overstay.getReservationId() + "/checkin");
+        assertEquals(409, response.statusCode());
+        assertTrue(response.body().contains("the reservation is CHECKED_OUT"), response.body());
+        assertEquals(200, post("/reservations/" + arriving.getReservationId() + "/checkin").statusCode());
+    }
+    
+    private void start(Hotel hotel) throws IOException {
+        server = new HotelServer(hotel, 0);
+        server.start();
+    }
+    
+    private static HttpRequest.BodyPublisher booking(int roomNumber, String advance) {
+        LocalDate checkIn = LocalDate.now();
+        return HttpRequest.BodyPublishers.ofString("{\"name\":\"Asha Rao\",\"phone\":\"9876543210\","
+            + "\"roomNumber\":" + roomNumber + ",\"checkIn\":\"" + checkIn + "\",\"checkOut\":\""
+            + checkIn.plusDays(1) + "\",\"advance\":" + advance + "}");
+    }
+    
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(),
+            HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+    
+    private HttpResponse<String> post(String path, HttpRequest.BodyPublisher body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).POST(body).build(),
+            HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+    
+    private HttpResponse<String> post(String path) throws Exception {
+        return post(path, HttpRequest.BodyPublishers.noBody());
+    }
+    
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,51 @@
+package hotel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The minimal JSON reader and writer behind the HTTP API.
+ */
+class JsonTest {
+    
+    @Test
+    void writesNestedValues() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "Asha \"A\" Rao\n");
+        value.put("nights", 2L);
+        value.put("paid", true);
+        value.put("rooms", List.of(101, 201));
+        value.put("note", null);
+        assertEquals("{\"name\":\"Asha \\\"A\\\" Rao\\n\",\"nights\":2,\"paid\":true,\"rooms\":[101,201],\"note\":null}",
+            Json.write(value));
+    }
+    
+    @Test
+    void writesNonFiniteNumbersAsNull() {
+        assertEquals("[null,null,null,1.5]",
+            Json.write(List.of(Double.NaN, Double.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 1.5)));
+    }
+    
+    @Test
+    void parsesFlatObject() {
+        Map<String, Object> parsed = Json.parseObject(
+            "{ \"name\": \"Asha\", \"roomNumber\": 101, \"advance\": -2.5e3, \"vip\": false, \"email\": null }");
+        assertEquals("Asha", parsed.get("name"));
+        assertEquals(101.0, parsed.get("roomNumber"));
+        assertEquals(-2500.0, parsed.get("advance"));
+        assertEquals(Boolean.FALSE, parsed.get("vip"));
+        assertTrue(parsed.containsKey("email"));
+        assertNull(parsed.get("email"));
+    }
+    
+    @Test
+    void rejectsNumbersOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"advance\": 1e999}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"advance\": -1e999}"));
+    }
+}
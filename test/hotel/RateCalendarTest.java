@@ -0,0 +1,98 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RateCalendarTest {
+    
+    private static final LocalDate START = LocalDate.of(2026, 1, 1);
+    private static final double DELUXE = Room.RoomType.DELUXE.getPricePerNight();
+    
+    @Test
+    void quotesStaysInsideTheWindow() {
+        RateCalendar rates = new RateCalendar(START, 30);
+        rates.setRate(Room.RoomType.DELUXE, START.plusDays(2), START.plusDays(4), 9000);
+        
+        assertEquals(3 * DELUXE + 2 * 9000, rates.quote(Room.RoomType.DELUXE, START, START.plusDays(5)), 0.001);
+        assertEquals(DELUXE, rates.rateOn(Room.RoomType.DELUXE, START.plusDays(4)), 0.001);
+    }
+    
+    @Test
+    void growsTheWindowForLaterStays() {
+        RateCalendar rates = new RateCalendar(START, 30);
+        // Set while those dates are still outside the window
+        LocalDate later = START.plusYears(3);
+        rates.setRate(Room.RoomType.DELUXE, later, later.plusDays(2), 9000);
+        
+        assertEquals(2 * 9000 + DELUXE, rates.quote(Room.RoomType.DELUXE, later, later.plusDays(3)), 0.001);
+        assertEquals(9000, rates.rateOn(Room.RoomType.DELUXE, later.plusDays(1)), 0.001);
+    }
+    
+    @Test
+    void growsTheWindowForEarlierStays() {
+        RateCalendar rates = new RateCalendar(START, 30);
+        rates.scaleRates(null, START.minusYears(2), START, 2);
+        
+        LocalDate earlier = START.minusYears(1);
+        assertEquals(2 * 2 * DELUXE, rates.quote(Room.RoomType.DELUXE, earlier, earlier.plusDays(2)), 0.001);
+        // A stay across the old start is priced from both sides
+        assertEquals(2 * DELUXE + DELUXE, rates.quote(Room.RoomType.DELUXE, START.minusDays(1), START.plusDays(1)), 0.001);
+    }
+    
+    @Test
+    void replaysChangesInOrderWhenTheWindowMoves() {
+        RateCalendar rates = new RateCalendar(START, 30);
+        LocalDate from = START.plusYears(2);
+        LocalDate to = from.plusDays(14);
+        rates.setRate(null, from, to, 1000);
+        rates.scaleRates(null, from, to, 1.5, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY
+                || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+            assertEquals(weekend ? 1500 : 1000, rates.rateOn(Room.RoomType.SINGLE, date), 0.001, date.toString());
+        }
+    }
+    
+    @Test
+    void rollsTheWindowForStaysFarAway() {
+        RateCalendar rates = new RateCalendar(START, 30);
+        rates.setRate(Room.RoomType.DELUXE, START, START.plusDays(1), 9000);
+        LocalDate far = START.plusYears(150);
+        rates.setRate(Room.RoomType.DELUXE, far, far.plusDays(1), 7000);
+        
+        assertEquals(7000 + DELUXE, rates.quote(Room.RoomType.DELUXE, far, far.plusDays(2)), 0.001);
+        // And back again
+        assertEquals(9000 + DELUXE, rates.quote(Room.RoomType.DELUXE, START, START.plusDays(2)), 0.001);
+    }
+    
+    @Test
+    void rejectsStaysLongerThanTheWindowCanHold() {
+        RateCalendar rates = new RateCalendar(START, 30);
+        
+        assertThrows(IllegalArgumentException.class,
+            () -> rates.quote(Room.RoomType.DELUXE, START, START.plusDays(RateCalendar.MAX_DAYS)));
+    }
+    
+    @Test
+    void loadsRulesThatApplyBeyondTheWindow(@TempDir File dir) throws IOException {
+        File file = new File(dir, "rates.txt");
+        Files.write(file.toPath(), ("# type from to rate\n"
+            + "DELUXE 2030-06-01 2030-06-03 9000\n").getBytes(StandardCharsets.UTF_8));
+        RateCalendar rates = new RateCalendar(START, 30);
+        rates.load(file);
+        
+        assertEquals(2 * 9000, rates.quote(Room.RoomType.DELUXE,
+            LocalDate.of(2030, 6, 1), LocalDate.of(2030, 6, 3)), 0.001);
+    }
+}
@@ -0,0 +1,106 @@
+package hotel;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset paging through {@link Hotel#findReservations}, across archived
+ * and in-memory reservations.
+ */
+class ReservationPagingTest {
+    
+    @TempDir
+    File dataDir;
+    
+    private Hotel hotel;
+    private Guest asha;
+    private final List<String> all = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        hotel = new Hotel("Test Hotel", dataDir);
+        asha = hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        Guest ravi = hotel.addGuest("Ravi Nair", "9123456780", "ravi@example.com", "ID2", "Kochi");
+        LocalDate past = LocalDate.now().minusDays(90);
+        LocalDate future = LocalDate.now().plusDays(10);
+        List<Room> rooms = hotel.getAllRooms();
+        for (int i = 0; i < 40; i++) {
+            Room room = rooms.get(i % rooms.size());
+            boolean closed = i % 2 == 0;
+            LocalDate checkIn = (closed ? past : future).plusDays(i / rooms.size());
+            Reservation reservation = hotel.makeReservation(i % 3 == 0 ? asha : ravi, room,
+                checkIn, checkIn.plusDays(1), 0);
+            if (closed) {
+                assertTrue(hotel.cancelReservation(reservation));
+            }
+            all.add(reservation.getReservationId());
+        }
+        hotel.setArchiveAfterDays(30);
+        assertEquals(20, hotel.archive());
+    }
+    
+    @Test
+    void pagesCoverEveryReservationOnceInOrder() {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            ReservationPage page = hotel.findReservations(ReservationQuery.all(), cursor, 7);
+            assertTrue(page.getReservations().size() <= 7);
+            page.getReservations().forEach(r -> seen.add(r.getReservationId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(all, seen);
+    }
+    
+    @Test
+    void lastFullPageHasNoCursor() {
+        ReservationPage page = hotel.findReservations(ReservationQuery.all(), null, all.size());
+        assertEquals(all.size(), page.getReservations().size());
+        assertFalse(page.hasMore());
+    }
+    
+    @Test
+    void filtersApplyAcrossPages() {
+        List<String> seen = new ArrayList<>();
+        ReservationQuery query = ReservationQuery.active().withGuest("g101");
+        String cursor = null;
+        do {
+            ReservationPage page = hotel.findReservations(query, cursor, 2);
+            for (Reservation reservation : page.getReservations()) {
+                assertEquals(Reservation.Status.CONFIRMED, reservation.getStatus());
+                assertEquals(asha.getGuestId(), reservation.getGuest().getGuestId());
+                seen.add(reservation.getReservationId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        // Every sixth booking from the fourth on is Asha's and still confirmed
+        assertEquals(List.of("RES1004", "RES1010", "RES1016", "RES1022", "RES1028", "RES1034", "RES1040"), seen);
+    }
+    
+    @Test
+    void largestCursorEndsTheListing() {
+        ReservationPage page = hotel.findReservations(ReservationQuery.all(), "RES" + Integer.MAX_VALUE, 10);
+        assertTrue(page.getReservations().isEmpty());
+        assertNull(page.getNextCursor());
+        page = hotel.findReservations(ReservationQuery.active(), "RES" + Integer.MAX_VALUE, 10);
+        assertTrue(page.getReservations().isEmpty());
+    }
+    
+    @Test
+    void rejectsBadCursorAndPageSize() {
+        assertThrows(IllegalArgumentException.class,
+            () -> hotel.findReservations(ReservationQuery.all(), "G101", 10));
+        assertThrows(IllegalArgumentException.class,
+            () -> hotel.findReservations(ReservationQuery.all(), "RES99999999999", 10));
+        assertThrows(IllegalArgumentException.class,
+            () -> hotel.findReservations(ReservationQuery.all(), null, 0));
+    }
+}
@@ -0,0 +1,86 @@
+package hotel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bookings and the checked-in occupant of a room's calendar.
+ */
+class RoomCalendarTest {
+    
+    @TempDir
+    File dataDir;
+    
+    private final Room room = new Room(101, Room.RoomType.SINGLE, true, true);
+    private final Guest guest = new Guest("G101", "Asha Rao", "9876543210", "", "ID1", "");
+    private final LocalDate today = LocalDate.now();
+    
+    @Test
+    void booksNonOverlappingStays() {
+        RoomCalendar calendar = new RoomCalendar();
+        assertTrue(calendar.book(stay("RES1001", 0, 2)));
+        assertFalse(calendar.book(stay("RES1002", 1, 3)));
+        assertTrue(calendar.book(stay("RES1003", 2, 3)));
+        assertTrue(calendar.isFree(today.minusDays(1), today));
+        assertFalse(calendar.isFree(today.plusDays(1), today.plusDays(2)));
+        assertEquals("RES1001", calendar.firstBooking().getReservationId());
+    }
+    
+    @Test
+    void tracksOccupantThroughCheckInAndRelease() {
+        RoomCalendar calendar = new RoomCalendar();
+        Reservation first = stay("RES1001", -1, 0);
+        Reservation second = stay("RES1002", 0, 1);
+        calendar.book(first);
+        calendar.book(second);
+        assertNull(calendar.checkedIn());
+        
+        first.checkIn();
+        calendar.checkIn(first);
+        assertSame(first, calendar.checkedIn());
+        calendar.release(second);
+        assertSame(first, calendar.checkedIn());
+        calendar.release(first);
+        assertNull(calendar.checkedIn());
+    }
+    
+    @Test
+    void loadedCheckedInBookingIsOccupant() {
+        RoomCalendar calendar = new RoomCalendar();
+        Reservation staying = stay("RES1001", 0, 1);
+        staying.checkIn();
+        calendar.book(staying);
+        assertSame(staying, calendar.checkedIn());
+    }
+    
+    @Test
+    void occupantSurvivesReload() {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        Guest asha = hotel.addGuest("Asha Rao", "9876543210", "", "ID1", "");
+        Room single = hotel.getRoomByNumber(101);
+        Reservation overstay = hotel.makeReservation(asha, single, today.minusDays(1), today, 0);
+        Reservation arriving = hotel.makeReservation(asha, single, today, today.plusDays(1), 0);
+        assertTrue(hotel.checkIn(overstay));
+        
+        // From the journal, then from a snapshot
+        Hotel replayed = new Hotel("Test Hotel", dataDir);
+        assertFalse(replayed.checkIn(replayed.findReservationById(arriving.getReservationId())));
+        replayed.compact();
+        Hotel loaded = new Hotel("Test Hotel", dataDir);
+        Reservation waiting = loaded.findReservationById(arriving.getReservationId());
+        assertNotNull(loaded.checkInRefusal(waiting));
+        
+        assertTrue(loaded.checkOut(loaded.findReservationById(overstay.getReservationId())));
+        assertNull(loaded.checkInRefusal(waiting));
+        assertTrue(loaded.checkIn(waiting));
+    }
+    
+    private Reservation stay(String reservationId, int fromDay, int toDay) {
+        return new Reservation(reservationId, guest, room, today.plusDays(fromDay), today.plusDays(toDay));
+    }
+}
@@ -0,0 +1,69 @@
+package hotel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The incremental room counters against a full recount, after bookings,
+ * check-ins, check-outs and cancellations, and after a reload.
+ */
+class RoomCountersTest {
+    
+    @TempDir
+    File dataDir;
+    
+    @Test
+    void countersMatchScanThroughStayLifecycle() {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        Guest guest = hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        LocalDate today = LocalDate.now();
+        assertEquals(hotel.getRoomCount(), hotel.getAvailableRoomCount());
+        
+        List<Reservation> tonight = new ArrayList<>();
+        for (Room room : hotel.getAllRooms()) {
+            tonight.add(hotel.makeReservation(guest, room, today, today.plusDays(2), 0));
+            assertNotNull(hotel.makeReservation(guest, room, today.plusDays(2), today.plusDays(4), 0));
+        }
+        assertEquals(List.of(), hotel.checkRoomCounters());
+        
+        for (Reservation reservation : tonight) {
+            assertTrue(hotel.checkIn(reservation));
+        }
+        assertEquals(0, hotel.getAvailableRoomCount());
+        assertEquals(List.of(), hotel.checkRoomCounters());
+        
+        for (int i = 0; i < tonight.size(); i++) {
+            Reservation reservation = tonight.get(i);
+            assertTrue(i % 2 == 0 ? hotel.checkOut(reservation) : hotel.cancelReservation(reservation));
+            assertFalse(hotel.checkOut(reservation));
+            assertEquals(List.of(), hotel.checkRoomCounters());
+        }
+        assertEquals(hotel.getRoomCount(), hotel.getAvailableRoomCount());
+    }
+    
+    @Test
+    void countersMatchScanAfterReload() {
+        Hotel hotel = new Hotel("Test Hotel", dataDir);
+        Guest guest = hotel.addGuest("Asha Rao", "9876543210", "asha@example.com", "ID1", "Pune");
+        LocalDate today = LocalDate.now();
+        Room first = hotel.getRoomByNumber(101);
+        Room second = hotel.getRoomByNumber(201);
+        assertTrue(hotel.checkIn(hotel.makeReservation(guest, first, today, today.plusDays(1), 0)));
+        Reservation left = hotel.makeReservation(guest, second, today, today.plusDays(1), 0);
+        assertTrue(hotel.checkIn(left));
+        assertTrue(hotel.checkOut(left));
+        
+        Hotel reloaded = new Hotel("Test Hotel", dataDir);
+        assertEquals(List.of(), reloaded.checkRoomCounters());
+        assertEquals(reloaded.getRoomCount() - 1, reloaded.getAvailableRoomCount());
+        assertFalse(reloaded.getRoomByNumber(101).isAvailable());
+        assertTrue(reloaded.getRoomByNumber(201).isAvailable());
+    }
+}